@@ -0,0 +1,41 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Caches the results of an idempotent command, the commands are compared with
+ * equals/hashCode. The least frequently used results are evicted when the
+ * cache is full. Null results and failures are not cached.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface CacheResult {
+
+    /**
+     * The time to live of a result in milliseconds, 0 for none.
+     *
+     * @return the time to live
+     */
+    long expireAfterWrite() default 60_000;
+
+    /**
+     * The event types invalidating the cached results when they are published on
+     * the event bus.
+     *
+     * @return the event types
+     */
+    Class<?>[] invalidatedBy() default {};
+
+    /**
+     * The maximum number of cached results.
+     *
+     * @return the maximum size
+     */
+    long maximumSize() default 1_000;
+}
@@ -0,0 +1,70 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Protects a command type with a circuit breaker : when the failure rate of the
+ * last commands reaches the threshold, the circuit opens and the commands fail
+ * fast with a CircuitBreakerOpenException. After the wait duration, a limited
+ * number of probe commands are executed : the circuit closes if they all
+ * succeed, and opens again otherwise.
+ * <p>
+ * The annotation is read on the command class, then on the handler class.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface CircuitBreaker {
+
+    /**
+     * The failure rate, in percent, opening the circuit.
+     *
+     * @return the failure rate threshold
+     */
+    int failureRateThreshold() default 50;
+
+    /**
+     * The minimum number of commands executed before the failure rate is
+     * evaluated.
+     *
+     * @return the minimum number of calls
+     */
+    int minimumNumberOfCalls() default 20;
+
+    /**
+     * The name of the circuit breaker. The command types declaring the same name
+     * share it (for instance the commands using the same dependency), the
+     * settings of the first compiled type are used. By default, each command
+     * type has its own circuit breaker.
+     *
+     * @return the name
+     */
+    String name() default "";
+
+    /**
+     * The number of probe commands executed while the circuit is half-open.
+     *
+     * @return the permitted calls in half-open state
+     */
+    int permittedCallsInHalfOpenState() default 3;
+
+    /**
+     * The number of last commands used to compute the failure rate.
+     *
+     * @return the sliding window size
+     */
+    int slidingWindowSize() default 100;
+
+    /**
+     * The time in milliseconds during which the circuit stays open before the
+     * probe commands.
+     *
+     * @return the wait duration in open state
+     */
+    long waitDurationInOpenState() default 30_000;
+}
@@ -0,0 +1,21 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks the field, or the method without parameters, returning the partition
+ * key of a command. The commands with equal keys are executed one at a time, in
+ * the dispatch order. The commands with different keys are executed in
+ * parallel.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface CommandKey {
+}
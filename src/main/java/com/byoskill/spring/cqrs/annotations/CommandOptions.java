@@ -15,11 +15,68 @@
  */
 package com.byoskill.spring.cqrs.annotations;
 
+import com.byoskill.spring.cqrs.api.OverflowPolicy;
+
 import java.lang.annotation.*;
 
+/**
+ * Options of the execution of a command type. The annotation is read on the
+ * command class, then on the handler class.
+ */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface CommandOptions {
+
+    /**
+     * The name of the bulkhead executing the commands : an isolated pool of
+     * threads with its own admission queue. The command types declaring the
+     * same bulkhead share it, the limits of the first compiled type are used.
+     * By default, the commands are executed by the shared command executor.
+     * <p>
+     * The synchronous dispatches in the caller thread mode are not executed by
+     * the bulkhead.
+     *
+     * @return the bulkhead name
+     */
+    String bulkhead() default "";
+
+    /**
+     * The number of threads of the bulkhead.
+     *
+     * @return the max concurrency
+     */
+    int maxConcurrency() default 10;
+
+    /**
+     * The policy of the bulkhead when its queue is full.
+     *
+     * @return the overflow policy
+     */
+    OverflowPolicy overflowPolicy() default OverflowPolicy.REJECT;
+
+    /**
+     * The priority of the commands waiting in the queue of the executor, the
+     * highest priority is executed first. The commands of a lower priority are
+     * aged to avoid their starvation.
+     *
+     * @return the priority
+     */
+    int priority() default 0;
+
+    /**
+     * The maximum number of commands waiting for a thread of the bulkhead.
+     *
+     * @return the queue capacity
+     */
+    int queueCapacity() default 100;
+
+    /**
+     * The time out of the command in milliseconds, 0 for none. The handler is
+     * interrupted and the command fails with a CommandTimeoutException when it
+     * expires.
+     *
+     * @return the time out
+     */
     long timeOut() default 0;
 }
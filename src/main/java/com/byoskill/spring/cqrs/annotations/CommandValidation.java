@@ -0,0 +1,34 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Options of the Bean Validation of a command type. The command types without
+ * any constraint are never validated.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface CommandValidation {
+
+    /**
+     * Stops the validation at the first invalid property : the exception only
+     * reports the violations of this property. The class level constraints and
+     * the cascaded properties are validated once the properties are valid.
+     *
+     * @return true, to stop at the first invalid property
+     */
+    boolean failFast() default false;
+
+    /**
+     * The validation groups, the default group if empty.
+     *
+     * @return the groups
+     */
+    Class<?>[] groups() default {};
+}
@@ -0,0 +1,26 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Generates at compile time a plain Java validator of the command class,
+ * checking its constraints without reflection. The validator is generated when
+ * every constraint of the class is supported : {@code @NotNull}, {@code @Size},
+ * {@code @Min}, {@code @Max} and {@code @Pattern} on non-private fields, in
+ * the default group. Otherwise a warning is emitted and the command is
+ * validated by the Bean Validation provider.
+ * <p>
+ * The generated validator only checks the commands : the violations of an
+ * invalid command are still reported by the Bean Validation provider, with the
+ * same messages.
+ */
+@Documented
+@Retention(CLASS)
+@Target(TYPE)
+public @interface GenerateValidator {
+}
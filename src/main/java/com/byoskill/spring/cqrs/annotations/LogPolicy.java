@@ -0,0 +1,61 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import org.slf4j.event.Level;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Defines how the executions of a command type are logged by the
+ * CommandLoggingRunner. The negative values use the defaults of the
+ * LoggingConfiguration.
+ * <p>
+ * The annotation is read on the command class, then on the handler class.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface LogPolicy {
+
+    /**
+     * The minimum delay in milliseconds between two logged failures of the
+     * command type, the failures in between are only counted. 0 logs every
+     * failure.
+     *
+     * @return the failure interval
+     */
+    long failureInterval() default -1;
+
+    /**
+     * The level of the failures.
+     *
+     * @return the failure level
+     */
+    Level failureLevel() default Level.ERROR;
+
+    /**
+     * The level of the commands and of their results.
+     *
+     * @return the level
+     */
+    Level level() default Level.INFO;
+
+    /**
+     * The maximum number of characters logged for a command or a result.
+     *
+     * @return the max payload length
+     */
+    int maxPayloadLength() default -1;
+
+    /**
+     * The fraction of the commands logged, between 0 and 1. The failures are
+     * not sampled.
+     *
+     * @return the sample rate
+     */
+    double sampleRate() default -1;
+}
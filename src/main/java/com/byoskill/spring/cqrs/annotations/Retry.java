@@ -0,0 +1,91 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Retries the failed commands, after an exponential backoff with jitter. The
+ * retries are scheduled on a timer, no thread sleeps between two attempts.
+ * <p>
+ * Each command type has a retry budget : every command deposits
+ * {@link #budgetRatio()} token, every retry withdraws one. When the budget is
+ * empty, the failures are not retried, to avoid a retry storm on an overloaded
+ * dependency. The rejected commands (CommandRejectedException) are never
+ * retried.
+ * <p>
+ * The annotation is read on the command class, then on the handler class.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface Retry {
+
+    /**
+     * The number of retries the budget holds when the command type is first
+     * executed.
+     *
+     * @return the minimum retries
+     */
+    int budgetMinRetries() default 10;
+
+    /**
+     * The tokens deposited in the retry budget by every command : 0.2 allows at
+     * most one retry for five commands.
+     *
+     * @return the budget ratio
+     */
+    double budgetRatio() default 0.2;
+
+    /**
+     * The delay in milliseconds before the first retry.
+     *
+     * @return the delay
+     */
+    long delay() default 100;
+
+    /**
+     * The fraction of the delay randomly removed, between 0 and 1.
+     *
+     * @return the jitter
+     */
+    double jitter() default 0.5;
+
+    /**
+     * The maximum number of attempts, including the first one.
+     *
+     * @return the max attempts
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * The maximum delay in milliseconds between two attempts.
+     *
+     * @return the max delay
+     */
+    long maxDelay() default 10_000;
+
+    /**
+     * The multiplier of the delay after each attempt.
+     *
+     * @return the multiplier
+     */
+    double multiplier() default 2.0;
+
+    /**
+     * The exceptions, or their causes, never retried.
+     *
+     * @return the exception types
+     */
+    Class<? extends Throwable>[] noRetryOn() default {};
+
+    /**
+     * The exceptions, or their causes, retried.
+     *
+     * @return the exception types
+     */
+    Class<? extends Throwable>[] retryOn() default Exception.class;
+}
@@ -0,0 +1,29 @@
+package com.byoskill.spring.cqrs.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.function.Function;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Coalesces the concurrent executions of equal commands : while a command is
+ * executed, the dispatches of an equal command wait for its result instead of
+ * executing the handler again. Suitable for the read commands.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface SingleFlight {
+
+    /**
+     * The function extracting the key of a command, with a public no-arg
+     * constructor. By default the commands are compared with equals/hashCode.
+     *
+     * @return the key extractor class
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends Function> key() default Function.class;
+}
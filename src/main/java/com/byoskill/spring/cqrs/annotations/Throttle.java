@@ -12,4 +12,11 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Target({TYPE, FIELD, METHOD})
 public @interface Throttle {
     String value();
+
+    /**
+     * Maximum time to wait for a permit, in milliseconds. The command is rejected
+     * when the permit is not granted in time. Negative to wait as long as
+     * necessary.
+     */
+    long timeOut() default -1;
 }
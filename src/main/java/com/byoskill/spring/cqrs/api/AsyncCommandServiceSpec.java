@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The Interface AsyncCommandServiceSpec is implemented by the command handlers
+ * returning a future, for example when they call non-blocking clients. The
+ * runners complete when the future completes and no thread is held meanwhile.
+ *
+ * @param <C> command
+ * @param <R> result type
+ */
+@FunctionalInterface
+public interface AsyncCommandServiceSpec<C, R> extends CommandServiceSpec<C, R> {
+
+    /**
+     * Waits for the result of {@link #handleAsync(Object)}, for the commands
+     * executed on the calling thread.
+     *
+     * @param command the command
+     * @return the returned value
+     * @throws RuntimeException the failure of the future
+     */
+    @Override
+    default R handle(final C command) throws RuntimeException {
+        return CompletionStages.join(handleAsync(command));
+    }
+
+    /**
+     * Handle asynchronously.
+     *
+     * @param command the command
+     * @return the future of the returned value
+     */
+    CompletableFuture<R> handleAsync(C command);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+import com.byoskill.spring.cqrs.gate.api.Gate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Interface BatchCommandServiceSpec is implemented by the command handlers
+ * able to handle several commands at once (i.e a multi-row insert).
+ * {@link Gate#dispatchAll(List, Class)} groups the commands of the same type and
+ * sends them in one call to {@link #handleAll(List)}.
+ *
+ * @param <C> command
+ * @param <R> result type
+ */
+@FunctionalInterface
+public interface BatchCommandServiceSpec<C, R> extends CommandServiceSpec<C, R> {
+
+    /**
+     * Handle a single command as a batch of one command.
+     *
+     * @param command the command
+     * @return the returned value
+     * @throws RuntimeException the runtime exception
+     */
+    @Override
+    default R handle(final C command) throws RuntimeException {
+        return handleAll(Collections.singletonList(command)).get(0);
+    }
+
+    /**
+     * Handle a batch of commands.
+     *
+     * @param commands the commands
+     * @return the returned values, one per command in the same order
+     * @throws RuntimeException the runtime exception
+     */
+    List<R> handleAll(List<C> commands) throws RuntimeException;
+}
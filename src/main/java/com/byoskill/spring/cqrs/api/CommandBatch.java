@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class CommandBatch is the raw command of the execution context when
+ * commands of the same type are executed together by a
+ * {@link BatchCommandServiceSpec}. The runners apply their processing once per
+ * batch.
+ */
+public class CommandBatch {
+
+    private final Class<?> commandType;
+
+    private final List<?> commands;
+
+    /**
+     * Instantiates a new command batch.
+     *
+     * @param commandType the type of the commands
+     * @param commands    the commands
+     */
+    public CommandBatch(final Class<?> commandType, final List<?> commands) {
+        this.commandType = commandType;
+        this.commands = Collections.unmodifiableList(commands);
+    }
+
+    /**
+     * Gets the commands.
+     *
+     * @return the commands
+     */
+    public List<?> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Gets the command type.
+     *
+     * @return the command type
+     */
+    public Class<?> getCommandType() {
+        return commandType;
+    }
+
+    /**
+     * Gets the number of commands.
+     *
+     * @return the size of the batch
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CommandBatch [commandType=" + commandType.getName() + ", size=" + commands.size() + "]";
+    }
+}
@@ -13,27 +13,38 @@ package com.byoskill.spring.cqrs.api;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * The Class CommandNotValidException is thrown when an invalid command has been
  * passed through the gate.
+ * <p>
+ * The message, listing the constraint violations, is only built when it is
+ * read.
  */
 public class CommandNotValidException extends ConstraintViolationException {
 
-    private static String toString(final Set<? extends ConstraintViolation<?>> constraintViolations) {
+    private static final long serialVersionUID = 1L;
+
+    private static String toString(final Set<? extends ConstraintViolation<?>> constraintViolations,
+                                   final String delimiter) {
         return constraintViolations.stream()
                 .map(cv -> cv == null ? "null" : cv.getPropertyPath() + ": " + cv.getMessage())
-                .collect(Collectors.joining("\n"));
+                .collect(Collectors.joining(delimiter));
     }
 
+    private final transient Supplier<String> description;
+
+    private transient volatile String message;
+
     /**
      * Instantiates a new command not valid exception.
      *
      * @param constraintViolations the constraint violations
      */
     public CommandNotValidException(final Set<? extends ConstraintViolation<?>> constraintViolations) {
-        super(constraintViolations);
+        this((Supplier<String>) null, constraintViolations);
     }
 
     /**
@@ -44,8 +55,36 @@ public class CommandNotValidException extends ConstraintViolationException {
      */
     public CommandNotValidException(final String message,
                                     final Set<? extends ConstraintViolation<?>> constraintViolations) {
-        super(message + "\nFailed validations : \n" + toString(constraintViolations), constraintViolations);
+        this(() -> message, constraintViolations);
+    }
+
+    /**
+     * Instantiates a new command not valid exception, the description is only
+     * built when the message is read.
+     *
+     * @param description          the description of the invalid command
+     * @param constraintViolations the constraint violations
+     */
+    public CommandNotValidException(final Supplier<String> description,
+                                    final Set<? extends ConstraintViolation<?>> constraintViolations) {
+        super(null, constraintViolations);
+        this.description = description;
+    }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Throwable#getMessage()
+     */
+    @Override
+    public String getMessage() {
+        String result = message;
+        if (result == null && getConstraintViolations() != null) {
+            result = description == null ? toString(getConstraintViolations(), ", ")
+                    : description.get() + "\nFailed validations : \n" + toString(getConstraintViolations(), "\n");
+            message = result;
+        }
+        return result;
     }
 
     @Override
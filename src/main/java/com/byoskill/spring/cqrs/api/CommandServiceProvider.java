@@ -10,6 +10,8 @@
  */
 package com.byoskill.spring.cqrs.api;
 
+import org.springframework.aop.framework.AopProxyUtils;
+
 /**
  * The Interface HandlersProvider.
  */
@@ -23,6 +25,17 @@ public interface CommandServiceProvider {
      */
     CommandServiceSpec getService(final Object command);
 
+    /**
+     * Gets the class implementing the service associated to this command, any
+     * AOP proxy being unwrapped.
+     *
+     * @param command the command
+     * @return the target class of the command service
+     */
+    default Class<?> getServiceTargetClass(final Object command) {
+        return AopProxyUtils.ultimateTargetClass(getService(command));
+    }
+
     /**
      * Put a command. It's relation is analyzed using the CommandServiceSpec
      * interface.
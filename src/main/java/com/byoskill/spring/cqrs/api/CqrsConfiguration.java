@@ -10,6 +10,9 @@
  */
 package com.byoskill.spring.cqrs.api;
 
+import com.byoskill.spring.cqrs.utils.concurrent.CommandExecutors;
+
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 
 /**
@@ -18,12 +21,39 @@ import java.util.concurrent.ForkJoinPool;
  */
 public interface CqrsConfiguration {
 
+    /**
+     * Provides the executor running the commands. {@link CommandExecutors}
+     * creates a fork join pool (the default) or an executor starting a virtual
+     * thread per command. By default, the pool of {@link #getForkJoinPool()} is
+     * used.
+     *
+     * @return the executor for async execution
+     */
+    default ExecutorService getCommandExecutor() {
+        return getForkJoinPool();
+    }
+
+    /**
+     * Gets the execution configuration. The default values are used when no
+     * execution configuration is declared as a bean.
+     *
+     * @return the execution configuration
+     */
+    default ExecutionConfiguration getExecutionConfiguration() {
+        return new DefaultExecutionConfiguration();
+    }
+
     /**
      * Provides a fork join pool to allow async executions for the commands.
      *
      * @return the fork join pool for async execution
+     * @deprecated replaced by {@link #getCommandExecutor()}, kept for the
+     * existing configurations
      */
-    ForkJoinPool getForkJoinPool();
+    @Deprecated
+    default ForkJoinPool getForkJoinPool() {
+        return CommandExecutors.newForkJoinPool(null);
+    }
 
     /**
      * Gets the logging configuration.
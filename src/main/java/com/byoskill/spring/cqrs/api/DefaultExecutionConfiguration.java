@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+public class DefaultExecutionConfiguration implements ExecutionConfiguration {
+
+    private boolean adaptiveConcurrencyEnabled = false;
+
+    private int adaptiveConcurrencyInitialLimit = 20;
+
+    private int adaptiveConcurrencyMaxLimit = 1_000;
+
+    private int adaptiveConcurrencyQueueCapacity = 100;
+
+    private DispatchMode dispatchMode = DispatchMode.EXECUTOR;
+
+    private int maxConcurrency = 256;
+
+    private MessageInterpolation messageInterpolation = MessageInterpolation.LAZY;
+
+    private boolean monitorDiagnosticEnabled = false;
+
+    private long monitorDiagnosticInterval = 100;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+    private long priorityAging = 1_000;
+
+    private int queueCapacity = 10_000;
+
+    private long queueDelayInterval = 1_000;
+
+    private long queueDelayTarget = 0;
+
+    @Override
+    public int getAdaptiveConcurrencyInitialLimit() {
+        return adaptiveConcurrencyInitialLimit;
+    }
+
+    @Override
+    public int getAdaptiveConcurrencyMaxLimit() {
+        return adaptiveConcurrencyMaxLimit;
+    }
+
+    @Override
+    public int getAdaptiveConcurrencyQueueCapacity() {
+        return adaptiveConcurrencyQueueCapacity;
+    }
+
+    @Override
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public MessageInterpolation getMessageInterpolation() {
+        return messageInterpolation;
+    }
+
+    @Override
+    public long getMonitorDiagnosticInterval() {
+        return monitorDiagnosticInterval;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public long getPriorityAging() {
+        return priorityAging;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public long getQueueDelayInterval() {
+        return queueDelayInterval;
+    }
+
+    @Override
+    public long getQueueDelayTarget() {
+        return queueDelayTarget;
+    }
+
+    @Override
+    public boolean isAdaptiveConcurrencyEnabled() {
+        return adaptiveConcurrencyEnabled;
+    }
+
+    @Override
+    public boolean isMonitorDiagnosticEnabled() {
+        return monitorDiagnosticEnabled;
+    }
+
+    public void setAdaptiveConcurrencyEnabled(final boolean adaptiveConcurrencyEnabled) {
+        this.adaptiveConcurrencyEnabled = adaptiveConcurrencyEnabled;
+    }
+
+    public void setAdaptiveConcurrencyInitialLimit(final int adaptiveConcurrencyInitialLimit) {
+        this.adaptiveConcurrencyInitialLimit = adaptiveConcurrencyInitialLimit;
+    }
+
+    public void setAdaptiveConcurrencyMaxLimit(final int adaptiveConcurrencyMaxLimit) {
+        this.adaptiveConcurrencyMaxLimit = adaptiveConcurrencyMaxLimit;
+    }
+
+    public void setAdaptiveConcurrencyQueueCapacity(final int adaptiveConcurrencyQueueCapacity) {
+        this.adaptiveConcurrencyQueueCapacity = adaptiveConcurrencyQueueCapacity;
+    }
+
+    public void setDispatchMode(final DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    public void setMaxConcurrency(final int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public void setMessageInterpolation(final MessageInterpolation messageInterpolation) {
+        this.messageInterpolation = messageInterpolation;
+    }
+
+    public void setMonitorDiagnosticEnabled(final boolean monitorDiagnosticEnabled) {
+        this.monitorDiagnosticEnabled = monitorDiagnosticEnabled;
+    }
+
+    public void setMonitorDiagnosticInterval(final long monitorDiagnosticInterval) {
+        this.monitorDiagnosticInterval = monitorDiagnosticInterval;
+    }
+
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setPriorityAging(final long priorityAging) {
+        this.priorityAging = priorityAging;
+    }
+
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setQueueDelayInterval(final long queueDelayInterval) {
+        this.queueDelayInterval = queueDelayInterval;
+    }
+
+    public void setQueueDelayTarget(final long queueDelayTarget) {
+        this.queueDelayTarget = queueDelayTarget;
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultExecutionConfiguration [adaptiveConcurrencyEnabled=" + adaptiveConcurrencyEnabled
+                + ", adaptiveConcurrencyInitialLimit=" + adaptiveConcurrencyInitialLimit
+                + ", adaptiveConcurrencyMaxLimit=" + adaptiveConcurrencyMaxLimit
+                + ", adaptiveConcurrencyQueueCapacity=" + adaptiveConcurrencyQueueCapacity + ", dispatchMode="
+                + dispatchMode + ", maxConcurrency=" + maxConcurrency + ", messageInterpolation=" + messageInterpolation
+                + ", monitorDiagnosticEnabled=" + monitorDiagnosticEnabled + ", monitorDiagnosticInterval="
+                + monitorDiagnosticInterval + ", overflowPolicy=" + overflowPolicy + ", priorityAging="
+                + priorityAging + ", queueCapacity=" + queueCapacity + ", queueDelayInterval=" + queueDelayInterval
+                + ", queueDelayTarget=" + queueDelayTarget + "]";
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+/**
+ * The Enum DispatchMode defines which thread executes the commands dispatched
+ * synchronously with the Gate.
+ */
+public enum DispatchMode {
+    /**
+     * The command is executed on the calling thread, no thread switch occurs.
+     */
+    CALLER_THREAD,
+    /**
+     * The command is executed by the command executor, the calling thread waits
+     * for its result.
+     */
+    EXECUTOR
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+/**
+ * The Interface ExecutionConfiguration defines how the commands are executed.
+ */
+public interface ExecutionConfiguration {
+
+    /**
+     * Gets the initial in-flight limit of each command type, when the adaptive
+     * concurrency is enabled.
+     *
+     * @return the initial limit
+     */
+    int getAdaptiveConcurrencyInitialLimit();
+
+    /**
+     * Gets the maximum in-flight limit of each command type, when the adaptive
+     * concurrency is enabled.
+     *
+     * @return the maximum limit
+     */
+    int getAdaptiveConcurrencyMaxLimit();
+
+    /**
+     * Gets the maximum number of commands of a type waiting for the adaptive
+     * limit, the next ones are rejected.
+     *
+     * @return the queue capacity
+     */
+    int getAdaptiveConcurrencyQueueCapacity();
+
+    /**
+     * Gets the mode used to execute the commands dispatched synchronously.
+     * Asynchronous dispatches are always executed by the command executor.
+     *
+     * @return the dispatch mode
+     */
+    DispatchMode getDispatchMode();
+
+    /**
+     * Gets the maximum number of commands submitted at the same time to the
+     * command executor.
+     *
+     * @return the max concurrency
+     */
+    int getMaxConcurrency();
+
+    /**
+     * Gets when and how the messages of the constraint violations are
+     * interpolated. The lazy modes require a validator which is also a
+     * {@link javax.validation.ValidatorFactory}.
+     *
+     * @return the message interpolation
+     */
+    MessageInterpolation getMessageInterpolation();
+
+    /**
+     * Gets the interval between two samples of the monitor diagnostic.
+     *
+     * @return the interval in milliseconds
+     */
+    long getMonitorDiagnosticInterval();
+
+    /**
+     * Gets the policy applied to the commands dispatched while the admission
+     * queue is full.
+     *
+     * @return the overflow policy
+     */
+    OverflowPolicy getOverflowPolicy();
+
+    /**
+     * Gets the waiting time in milliseconds after which a queued command is
+     * executed before the commands of the next priority.
+     *
+     * @return the priority aging
+     */
+    long getPriorityAging();
+
+    /**
+     * Gets the maximum number of commands waiting for the command executor.
+     *
+     * @return the queue capacity
+     */
+    int getQueueCapacity();
+
+    /**
+     * Gets the interval in milliseconds during which the queue delay must fall
+     * below the target, otherwise the executor is overloaded. The commands
+     * waiting longer than the interval are always shed.
+     *
+     * @return the queue delay interval
+     */
+    long getQueueDelayInterval();
+
+    /**
+     * Gets the acceptable time in milliseconds spent by a command between its
+     * dispatch and its execution while the executor is overloaded, 0 to never
+     * shed the commands.
+     *
+     * @return the queue delay target
+     */
+    long getQueueDelayTarget();
+
+    /**
+     * Checks if the number of commands in flight of each command type is limited
+     * by a limit learnt from their latency.
+     *
+     * @return true, if the adaptive concurrency is enabled
+     */
+    boolean isAdaptiveConcurrencyEnabled();
+
+    /**
+     * Checks if the handlers holding a monitor while they block are reported.
+     *
+     * @return true, if the monitor diagnostic is enabled
+     */
+    boolean isMonitorDiagnosticEnabled();
+}
@@ -12,6 +12,47 @@ package com.byoskill.spring.cqrs.api;
 
 public interface LoggingConfiguration {
 
+    /**
+     * Gets the number of log records waiting to be rendered by the logging
+     * thread, the next ones are dropped. 0 renders the records on the thread
+     * executing the command.
+     *
+     * @return the log buffer capacity
+     */
+    int getLogBufferCapacity();
+
+    /**
+     * Gets the default minimum delay in milliseconds between two logged failures
+     * of a command type.
+     *
+     * @return the log failure interval
+     */
+    long getLogFailureInterval();
+
+    /**
+     * Gets the default maximum number of characters logged for a command or a
+     * result.
+     *
+     * @return the log max payload length
+     */
+    int getLogMaxPayloadLength();
+
+    /**
+     * Gets the default fraction of the commands logged, between 0 and 1.
+     *
+     * @return the log sample rate
+     */
+    double getLogSampleRate();
+
+    /**
+     * Gets the interval in milliseconds between two summaries of the latencies
+     * of the commands. 0 disables the summaries, the latencies are still
+     * recorded.
+     *
+     * @return the profiling interval
+     */
+    long getProfilingInterval();
+
     /**
      * Checks if is logging enabled.
      *
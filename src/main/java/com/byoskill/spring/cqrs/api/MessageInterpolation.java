@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+/**
+ * The Enum MessageInterpolation defines when and how the messages of the
+ * constraint violations of an invalid command are interpolated.
+ */
+public enum MessageInterpolation {
+    /**
+     * The messages are interpolated on their first read, with the message
+     * interpolator of the validator factory.
+     */
+    LAZY,
+    /**
+     * The messages are interpolated on their first read, with the parameters of
+     * the constraint only : the expressions are not evaluated and the Expression
+     * Language implementation is not needed.
+     */
+    PARAMETERS,
+    /**
+     * The messages are interpolated by the validator during the validation.
+     */
+    PROVIDER
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+
+/**
+ * The Enum OverflowPolicy defines what happens to a command dispatched while
+ * the admission queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The dispatching thread waits until the queue has room. Avoid it when the
+     * handlers dispatch commands themselves, they may wait for each other.
+     */
+    BLOCK,
+
+    /**
+     * The command is executed by the dispatching thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The command is rejected with a {@link CommandRejectedException}.
+     */
+    REJECT,
+
+    /**
+     * The oldest queued command is completed with a
+     * {@link CommandRejectedException} to make room for the command.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.api;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The Class RateLimit describes the permits granted by a rate limiter : a
+ * stable rate, the number of permits granted at once after an idle period
+ * (burst) and the time needed to reach the stable rate after an idle period
+ * (warm-up).
+ */
+public final class RateLimit {
+
+    private final int burst;
+
+    private final double permitsPerSecond;
+
+    private final long warmUp;
+
+    /**
+     * Instantiates a new rate limit without burst nor warm-up.
+     *
+     * @param permitsPerSecond the stable rate
+     */
+    public RateLimit(final double permitsPerSecond) {
+        this(permitsPerSecond, 1, 0);
+    }
+
+    /**
+     * Instantiates a new rate limit.
+     *
+     * @param permitsPerSecond the stable rate
+     * @param burst            the number of permits granted at once
+     * @param warmUp           the warm-up period in milliseconds, 0 for none. The
+     *                         rate starts at a third of the stable rate
+     */
+    public RateLimit(final double permitsPerSecond, final int burst, final long warmUp) {
+        Validate.isTrue(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        Validate.isTrue(burst > 0, "burst must be positive");
+        Validate.isTrue(warmUp >= 0, "warmUp must not be negative");
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Gets the burst.
+     *
+     * @return the burst
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Gets the stable rate.
+     *
+     * @return the permits per second
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Gets the warm-up period in milliseconds.
+     *
+     * @return the warm-up
+     */
+    public long getWarmUp() {
+        return warmUp;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + ", warmUp=" + warmUp + "]";
+    }
+}
@@ -10,6 +10,10 @@
  */
 package com.byoskill.spring.cqrs.api;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
 @FunctionalInterface
 public interface ThrottlingInterface {
 
@@ -20,4 +24,47 @@ public interface ThrottlingInterface {
      */
     void acquirePermit(String name);
 
+    /**
+     * Acquire a permit without blocking the calling thread. The returned stage
+     * completes when the permit is granted. By default, the permit is acquired
+     * with {@link #acquirePermit(String)}.
+     *
+     * @param name the name
+     * @return the stage completed when the permit is granted
+     */
+    default CompletionStage<Void> acquirePermitAsync(final String name) {
+        acquirePermit(name);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Acquire a permit if it is granted within a time out. By default, the permit
+     * is acquired with {@link #acquirePermit(String)}.
+     *
+     * @param name    the name
+     * @param timeout the time out
+     * @param unit    the unit of the time out
+     * @return true, if the permit is granted
+     */
+    default boolean tryAcquirePermit(final String name, final long timeout, final TimeUnit unit) {
+        acquirePermit(name);
+        return true;
+    }
+
+    /**
+     * Acquire a permit without blocking the calling thread, if it is granted
+     * within a time out. By default, the permit is acquired with
+     * {@link #tryAcquirePermit(String, long, TimeUnit)}.
+     *
+     * @param name    the name
+     * @param timeout the time out
+     * @param unit    the unit of the time out
+     * @return the stage completed with true when the permit is granted, false if
+     * it is not granted in time
+     */
+    default CompletionStage<Boolean> tryAcquirePermitAsync(final String name, final long timeout,
+                                                           final TimeUnit unit) {
+        return CompletableFuture.completedFuture(tryAcquirePermit(name, timeout, unit));
+    }
+
 }
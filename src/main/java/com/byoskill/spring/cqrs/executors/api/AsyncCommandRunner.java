@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.api;
+
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The Interface AsyncCommandRunner describes a step of the command workflow
+ * returning a {@link CompletionStage} : it does not hold a thread while the
+ * next steps are waiting (for a permit, a delay or an asynchronous handler).
+ * <p>
+ * The synchronous runners are adapted by the workflow, they hold the thread
+ * until the next steps complete. An asynchronous runner in a synchronous chain
+ * waits for its own stage.
+ */
+public interface AsyncCommandRunner extends CommandRunner {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    default Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        return CompletionStages.join(executeAsync(context, ctx -> CompletionStages.supply(() -> chain.execute(ctx))));
+    }
+
+    /**
+     * Execute the command.
+     *
+     * @param context the context
+     * @param chain   the chain
+     * @return the stage completed with the returned value.
+     */
+    CompletionStage<Object> executeAsync(CommandExecutionContext context, AsyncCommandRunnerChain chain);
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.api;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The Interface AsyncCommandRunnerChain propagates the execution to the next
+ * step of the command workflow, without waiting for its completion.
+ */
+public interface AsyncCommandRunnerChain {
+
+    /**
+     * Execute the command.
+     *
+     * @param context the context
+     * @return the stage completed with the returned value.
+     */
+    CompletionStage<Object> executeAsync(CommandExecutionContext context);
+}
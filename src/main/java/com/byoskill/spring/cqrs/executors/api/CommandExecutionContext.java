@@ -11,8 +11,10 @@
 package com.byoskill.spring.cqrs.executors.api;
 
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import org.springframework.aop.framework.AopProxyUtils;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.Executor;
 
 // TODO: Auto-generated Javadoc
 
@@ -39,6 +41,31 @@ public interface CommandExecutionContext {
      */
     <T> T getCommand(Class<T> impl);
 
+    /**
+     * Gets the descriptor of the command type. By default, a new descriptor is
+     * built from the raw command and the handler : the implementations should
+     * return the descriptor they share for the command type.
+     *
+     * @return the command type descriptor
+     */
+    default CommandTypeDescriptor getDescriptor() {
+        final CommandServiceSpec<?, ?> handler = handler();
+        return new CommandTypeDescriptor(getRawCommand().getClass(),
+                handler == null ? null : AopProxyUtils.ultimateTargetClass(handler));
+    }
+
+    /**
+     * Gets the executor running the command : the pool of its bulkhead, or the
+     * shared command executor. The runners resuming the command after a wait use
+     * it instead of the thread completing the wait. By default, the tasks run on
+     * the calling thread.
+     *
+     * @return the executor of the command
+     */
+    default Executor getExecutor() {
+        return Runnable::run;
+    }
+
     /**
      * Gets the raw command.
      *
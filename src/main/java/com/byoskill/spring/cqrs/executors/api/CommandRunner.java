@@ -26,4 +26,15 @@ public interface CommandRunner {
      * @throws RuntimeException the runtime exception
      */
     Object execute(CommandExecutionContext context, CommandRunnerChain chain) throws RuntimeException;
+
+    /**
+     * Tells if the runner has something to do for a command type. Runners that
+     * are not applicable are left out of the chain compiled for this type.
+     *
+     * @param descriptor the command type descriptor
+     * @return true, if the runner should be part of the chain
+     */
+    default boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return true;
+    }
 }
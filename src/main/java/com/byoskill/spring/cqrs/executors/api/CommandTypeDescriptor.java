@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.api;
+
+import com.byoskill.spring.cqrs.annotations.CommandKey;
+import com.byoskill.spring.cqrs.annotations.CommandOptions;
+import com.byoskill.spring.cqrs.annotations.ReturnEventOnSuccess;
+import com.byoskill.spring.cqrs.annotations.Throttle;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.EventThrower;
+import com.byoskill.spring.cqrs.gate.api.CqrsException;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class CommandTypeDescriptor contains the metadata of a command type and
+ * of its handler. It is computed once per command type, when the runner chain
+ * of the command type is compiled, so that the runners do not have to use
+ * reflection for each command.
+ */
+public class CommandTypeDescriptor {
+
+    private final Map<Class<? extends Annotation>, Annotation> annotations;
+
+    private final boolean batchHandler;
+
+    private final AccessibleObject commandKey;
+
+    private final CommandOptions commandOptions;
+
+    private final Class<?> commandType;
+
+    private final Class<?> handlerType;
+
+    private final boolean returnEventOnSuccess;
+
+    private final Throttle throttle;
+
+    /**
+     * Instantiates a new command type descriptor.
+     *
+     * @param commandType the command type
+     * @param handlerType the class of the handler, without AOP proxies (may be
+     *                    null if unknown)
+     */
+    public CommandTypeDescriptor(final Class<?> commandType, final Class<?> handlerType) {
+        this.commandType = commandType;
+        this.handlerType = handlerType;
+        final Map<Class<? extends Annotation>, Annotation> commandAnnotations = new HashMap<>();
+        for (final Annotation annotation : commandType.getAnnotations()) {
+            commandAnnotations.put(annotation.annotationType(), annotation);
+        }
+        annotations = Collections.unmodifiableMap(commandAnnotations);
+        throttle = getAnnotation(Throttle.class);
+        commandOptions = getAnnotation(CommandOptions.class) != null || handlerType == null
+                ? getAnnotation(CommandOptions.class)
+                : handlerType.getAnnotation(CommandOptions.class);
+        returnEventOnSuccess = handlerType != null && handlerType.isAnnotationPresent(ReturnEventOnSuccess.class);
+        batchHandler = handlerType != null && BatchCommandServiceSpec.class.isAssignableFrom(handlerType);
+        commandKey = findCommandKey(commandType);
+    }
+
+    private static AccessibleObject findCommandKey(final Class<?> commandType) {
+        for (Class<?> type = commandType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (final Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(CommandKey.class)) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+            for (final Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(CommandKey.class)) {
+                    if (method.getParameterCount() != 0) {
+                        throw new CqrsException("The @CommandKey method " + method + " must not have parameters");
+                    }
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets an annotation of the command type.
+     *
+     * @param <A>             the generic type
+     * @param annotationClass the annotation class
+     * @return the annotation or null if the command type is not annotated
+     */
+    public <A extends Annotation> A getAnnotation(final Class<A> annotationClass) {
+        return annotationClass.cast(annotations.get(annotationClass));
+    }
+
+    /**
+     * Gets the options of the command type, declared on the command or on its
+     * handler.
+     *
+     * @return the command options or null
+     */
+    public CommandOptions getCommandOptions() {
+        return commandOptions;
+    }
+
+    /**
+     * Gets the partition key of a command, read from the member annotated with
+     * {@link CommandKey}.
+     *
+     * @param command the command
+     * @return the key, may be null
+     * @throws CqrsException if the key cannot be read
+     */
+    public Object getCommandKey(final Object command) {
+        try {
+            if (commandKey instanceof Field) {
+                return ((Field) commandKey).get(command);
+            }
+            return ((Method) commandKey).invoke(command);
+        } catch (final IllegalAccessException | InvocationTargetException e) {
+            throw new CqrsException("Cannot read the key of the command " + command, e);
+        }
+    }
+
+    /**
+     * Gets the command type.
+     *
+     * @return the command type
+     */
+    public Class<?> getCommandType() {
+        return commandType;
+    }
+
+    /**
+     * Gets the handler type.
+     *
+     * @return the handler type, null if unknown
+     */
+    public Class<?> getHandlerType() {
+        return handlerType;
+    }
+
+    /**
+     * Gets the throttle annotation of the command type.
+     *
+     * @return the throttle or null
+     */
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Checks if the handler can handle several commands at once.
+     *
+     * @return true, if the handler is a {@link BatchCommandServiceSpec}
+     */
+    public boolean isBatchHandler() {
+        return batchHandler;
+    }
+
+    /**
+     * Checks if the commands are partitioned by a key.
+     *
+     * @return true, if a member of the command type is annotated with
+     * {@link CommandKey}
+     */
+    public boolean isCommandKeyed() {
+        return commandKey != null;
+    }
+
+    /**
+     * Checks if the handler may throw events.
+     *
+     * @return true, if the handler is an {@link EventThrower}, is annotated with
+     * {@link ReturnEventOnSuccess} or is unknown.
+     */
+    public boolean isEventProducer() {
+        return handlerType == null || returnEventOnSuccess || EventThrower.class.isAssignableFrom(handlerType);
+    }
+
+    /**
+     * Checks if the handler returns an event on success.
+     *
+     * @return true, if the handler is annotated with {@link ReturnEventOnSuccess}
+     */
+    public boolean isReturnEventOnSuccess() {
+        return returnEventOnSuccess;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandTypeDescriptor [commandType=" + commandType + ", handlerType=" + handlerType + "]";
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.cache;
+
+import com.byoskill.spring.cqrs.gate.api.EventBusService;
+
+/**
+ * The Class CacheInvalidatingEventBusService invalidates the command caches
+ * before handing the events to the event bus. The bus may deliver them
+ * asynchronously : once {@link #publishEvent(Object)} returns, the next
+ * dispatch of an invalidated command is not served from the cache.
+ */
+public class CacheInvalidatingEventBusService implements EventBusService {
+
+    private final CommandCacheRunner commandCacheRunner;
+
+    private final EventBusService delegate;
+
+    /**
+     * Instantiates a new cache invalidating event bus service.
+     *
+     * @param commandCacheRunner the command cache runner
+     * @param delegate           the event bus service delivering the events
+     */
+    public CacheInvalidatingEventBusService(final CommandCacheRunner commandCacheRunner,
+                                            final EventBusService delegate) {
+        this.commandCacheRunner = commandCacheRunner;
+        this.delegate = delegate;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.gate.api.EventBusService#publishEvent(java.lang.
+     * Object)
+     */
+    @Override
+    public void publishEvent(final Object event) {
+        commandCacheRunner.invalidate(event);
+        delegate.publishEvent(event);
+    }
+}
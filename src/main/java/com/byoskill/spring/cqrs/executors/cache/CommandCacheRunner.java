@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.cache;
+
+import com.byoskill.spring.cqrs.annotations.CacheResult;
+import com.byoskill.spring.cqrs.api.CommandBatch;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class CommandCacheRunner caches the results of the commands annotated
+ * with {@link CacheResult}. The caches use a size-bounded, frequency-aware
+ * eviction (W-TinyLFU).
+ * <p>
+ * The caches are invalidated by the events declared in
+ * {@link CacheResult#invalidatedBy()} through {@link #invalidate(Object)},
+ * called synchronously by {@link CacheInvalidatingEventBusService} when an
+ * event is published. A result computed while its cache was invalidated is not
+ * kept.
+ */
+public class CommandCacheRunner implements AsyncCommandRunner {
+
+    /**
+     * The statistics of the cache of a command type.
+     */
+    public static class CommandCacheStatistics {
+        private final long estimatedSize;
+        private final CacheStats stats;
+
+        CommandCacheStatistics(final CacheStats stats, final long estimatedSize) {
+            this.stats = stats;
+            this.estimatedSize = estimatedSize;
+        }
+
+        /**
+         * Gets the approximate number of cached results.
+         *
+         * @return the estimated size
+         */
+        public long getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        /**
+         * Gets the number of results evicted because of the size or the time to
+         * live.
+         *
+         * @return the eviction count
+         */
+        public long getEvictionCount() {
+            return stats.evictionCount();
+        }
+
+        /**
+         * Gets the number of commands served by the cache.
+         *
+         * @return the hit count
+         */
+        public long getHitCount() {
+            return stats.hitCount();
+        }
+
+        /**
+         * Gets the ratio of the commands served by the cache.
+         *
+         * @return the hit ratio
+         */
+        public double getHitRatio() {
+            return stats.hitRate();
+        }
+
+        /**
+         * Gets the number of commands executed by the handler.
+         *
+         * @return the miss count
+         */
+        public long getMissCount() {
+            return stats.missCount();
+        }
+
+        @Override
+        public String toString() {
+            return "CommandCacheStatistics [estimatedSize=" + estimatedSize + ", " + stats + "]";
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandCacheRunner.class);
+
+    private final ConcurrentMap<Class<?>, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, Set<Class<?>>> invalidations = new ConcurrentHashMap<>();
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        final Object command = context.getRawCommand();
+        if (command instanceof CommandBatch) {
+            return chain.execute(context);
+        }
+        final Cache<Object, Object> cache = getCache(context.getDescriptor());
+        final Object cached = cache.getIfPresent(command);
+        if (cached != null) {
+            LOGGER.debug("Command {} served from the cache", command);
+            return cached;
+        }
+        final AtomicLong generation = generations.get(context.getDescriptor().getCommandType());
+        final long start = generation.get();
+        final Object result = chain.execute(context);
+        store(cache, generation, start, command, result);
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final Object command = context.getRawCommand();
+        if (command instanceof CommandBatch) {
+            return chain.executeAsync(context);
+        }
+        final Cache<Object, Object> cache = getCache(context.getDescriptor());
+        final Object cached = cache.getIfPresent(command);
+        if (cached != null) {
+            LOGGER.debug("Command {} served from the cache", command);
+            return CompletableFuture.completedFuture(cached);
+        }
+        final AtomicLong generation = generations.get(context.getDescriptor().getCommandType());
+        final long start = generation.get();
+        return chain.executeAsync(context).thenApply(result -> {
+            store(cache, generation, start, command, result);
+            return result;
+        });
+    }
+
+    /**
+     * Gets the statistics of the caches per command type.
+     *
+     * @return the statistics
+     */
+    public Map<Class<?>, CommandCacheStatistics> getStatistics() {
+        final Map<Class<?>, CommandCacheStatistics> statistics = new HashMap<>();
+        caches.forEach((commandType, cache) -> statistics.put(commandType,
+                new CommandCacheStatistics(cache.stats(), cache.estimatedSize())));
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Invalidates the caches of the command types declaring the type of the event
+     * in {@link CacheResult#invalidatedBy()}.
+     *
+     * @param event the event
+     */
+    public void invalidate(final Object event) {
+        invalidations.forEach((eventType, commandTypes) -> {
+            if (eventType.isInstance(event)) {
+                for (final Class<?> commandType : commandTypes) {
+                    LOGGER.debug("Event {} invalidates the cache of {}", event, commandType);
+                    // Increments first, the commands in progress drop their results
+                    generations.get(commandType).incrementAndGet();
+                    caches.get(commandType).invalidateAll();
+                }
+            }
+        });
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return descriptor.getAnnotation(CacheResult.class) != null;
+    }
+
+    private Cache<Object, Object> getCache(final CommandTypeDescriptor descriptor) {
+        final Cache<Object, Object> cache = caches.get(descriptor.getCommandType());
+        if (cache != null) {
+            return cache;
+        }
+        return caches.computeIfAbsent(descriptor.getCommandType(), commandType -> {
+            final CacheResult options = descriptor.getAnnotation(CacheResult.class);
+            final Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(options.maximumSize())
+                    .recordStats();
+            if (options.expireAfterWrite() > 0) {
+                builder.expireAfterWrite(options.expireAfterWrite(), TimeUnit.MILLISECONDS);
+            }
+            for (final Class<?> eventType : options.invalidatedBy()) {
+                invalidations.computeIfAbsent(eventType, type -> ConcurrentHashMap.newKeySet()).add(commandType);
+            }
+            generations.put(commandType, new AtomicLong());
+            LOGGER.info("Caching the results of {} : {}", commandType, options);
+            return builder.build();
+        });
+    }
+
+    private void store(final Cache<Object, Object> cache, final AtomicLong generation, final long start,
+                       final Object command, final Object result) {
+        if (result == null) {
+            return;
+        }
+        cache.put(command, result);
+        if (generation.get() != start) {
+            // Invalidated during the execution, the result may be stale
+            cache.invalidate(command);
+        }
+    }
+}
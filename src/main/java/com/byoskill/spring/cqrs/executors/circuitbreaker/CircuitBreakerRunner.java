@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.circuitbreaker;
+
+import com.byoskill.spring.cqrs.annotations.CircuitBreaker;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CircuitBreakerOpenException;
+import com.byoskill.spring.cqrs.gate.api.EventBusService;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class CircuitBreakerRunner applies the {@link CircuitBreaker} of the
+ * command types. While a circuit is open, the commands fail fast with a
+ * {@link CircuitBreakerOpenException} : the next runners (time out, handler,
+ * exception logging) are skipped. The state transitions are published on the
+ * event bus as {@link CircuitBreakerStateChangedEvent}.
+ */
+public class CircuitBreakerRunner implements AsyncCommandRunner {
+
+    private final ConcurrentMap<String, CommandCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final EventBusService eventBusService;
+
+    @Autowired
+    public CircuitBreakerRunner(final EventBusService eventBusService) {
+        this.eventBusService = eventBusService;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final CommandCircuitBreaker circuitBreaker = getCircuitBreaker(context.getDescriptor());
+        final long generation = circuitBreaker.tryAcquirePermission();
+        if (generation < 0) {
+            return CompletionStages.failed(new CircuitBreakerOpenException(
+                    "Circuit breaker " + circuitBreaker.getName() + " is " + circuitBreaker.getState()));
+        }
+        return chain.executeAsync(context)
+                .whenComplete((result, failure) -> circuitBreaker.onResult(generation, failure != null));
+    }
+
+    /**
+     * Gets the circuit breakers.
+     *
+     * @return the circuit breakers per name
+     */
+    public Map<String, CommandCircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return getConfiguration(descriptor) != null;
+    }
+
+    private CommandCircuitBreaker getCircuitBreaker(final CommandTypeDescriptor descriptor) {
+        final CircuitBreaker configuration = getConfiguration(descriptor);
+        final String name = configuration.name().isEmpty() ? descriptor.getCommandType().getName()
+                : configuration.name();
+        final CommandCircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+        return circuitBreakers.computeIfAbsent(name,
+                key -> new CommandCircuitBreaker(key, configuration, eventBusService::publishEvent));
+    }
+
+    private CircuitBreaker getConfiguration(final CommandTypeDescriptor descriptor) {
+        final CircuitBreaker configuration = descriptor.getAnnotation(CircuitBreaker.class);
+        if (configuration != null || descriptor.getHandlerType() == null) {
+            return configuration;
+        }
+        return descriptor.getHandlerType().getAnnotation(CircuitBreaker.class);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.circuitbreaker;
+
+import com.byoskill.spring.cqrs.executors.circuitbreaker.CommandCircuitBreaker.State;
+
+/**
+ * The Class CircuitBreakerStateChangedEvent is published on the event bus when
+ * a circuit breaker changes its state.
+ */
+public class CircuitBreakerStateChangedEvent {
+
+    private final State from;
+
+    private final String name;
+
+    private final State to;
+
+    /**
+     * Instantiates a new circuit breaker state changed event.
+     *
+     * @param name the name of the circuit breaker
+     * @param from the previous state
+     * @param to   the new state
+     */
+    public CircuitBreakerStateChangedEvent(final String name, final State from, final State to) {
+        this.name = name;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Gets the previous state.
+     *
+     * @return the previous state
+     */
+    public State getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the name of the circuit breaker.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the new state.
+     *
+     * @return the new state
+     */
+    public State getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerStateChangedEvent [name=" + name + ", from=" + from + ", to=" + to + "]";
+    }
+}
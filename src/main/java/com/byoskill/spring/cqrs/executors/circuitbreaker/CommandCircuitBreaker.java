@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.circuitbreaker;
+
+import com.byoskill.spring.cqrs.annotations.CircuitBreaker;
+import com.byoskill.spring.cqrs.utils.concurrent.FailureRateWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The Class CommandCircuitBreaker is the state machine of a
+ * {@link CircuitBreaker}. The state is an immutable phase replaced with a
+ * compare-and-set, each phase has a generation : the outcomes of the commands
+ * permitted by a previous phase are ignored.
+ */
+public class CommandCircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * A phase of the circuit breaker.
+     */
+    private static final class Phase {
+
+        private final long generation;
+
+        private final long openedAt;
+
+        private final AtomicInteger probes;
+
+        private final State state;
+
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private final FailureRateWindow window;
+
+        Phase(final long generation, final State state, final long openedAt, final int probes,
+              final FailureRateWindow window) {
+            this.generation = generation;
+            this.state = state;
+            this.openedAt = openedAt;
+            this.probes = new AtomicInteger(probes);
+            this.window = window;
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandCircuitBreaker.class);
+
+    private final CircuitBreaker configuration;
+
+    private final Consumer<CircuitBreakerStateChangedEvent> listener;
+
+    private final String name;
+
+    private final AtomicLong notPermittedCount = new AtomicLong();
+
+    private final AtomicReference<Phase> phase;
+
+    private final long waitDuration;
+
+    /**
+     * Instantiates a new command circuit breaker.
+     *
+     * @param name          the name
+     * @param configuration the configuration
+     * @param listener      the listener of the state transitions
+     */
+    public CommandCircuitBreaker(final String name, final CircuitBreaker configuration,
+                                 final Consumer<CircuitBreakerStateChangedEvent> listener) {
+        this.name = name;
+        this.configuration = configuration;
+        this.listener = listener;
+        waitDuration = TimeUnit.MILLISECONDS.toNanos(configuration.waitDurationInOpenState());
+        phase = new AtomicReference<>(closed(0));
+    }
+
+    /**
+     * Gets the failure rate in percent of the last commands, while the circuit is
+     * closed.
+     *
+     * @return the failure rate
+     */
+    public float getFailureRate() {
+        final FailureRateWindow window = phase.get().window;
+        return window == null ? 0 : window.getFailureRate();
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of commands failed fast.
+     *
+     * @return the not permitted count
+     */
+    public long getNotPermittedCount() {
+        return notPermittedCount.get();
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * Records the outcome of a permitted command.
+     *
+     * @param generation the generation returned by {@link #tryAcquirePermission()}
+     * @param failure    true if the command failed
+     */
+    public void onResult(final long generation, final boolean failure) {
+        final Phase current = phase.get();
+        if (current.generation != generation) {
+            return;
+        }
+        if (current.state == State.CLOSED) {
+            current.window.record(failure);
+            if (current.window.getCalls() >= configuration.minimumNumberOfCalls()
+                    && current.window.getFailureRate() >= configuration.failureRateThreshold()) {
+                transition(current, open(current.generation + 1));
+            }
+        } else if (current.state == State.HALF_OPEN) {
+            if (failure) {
+                transition(current, open(current.generation + 1));
+            } else if (current.successes.incrementAndGet() >= configuration.permittedCallsInHalfOpenState()) {
+                transition(current, closed(current.generation + 1));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CommandCircuitBreaker [name=" + name + ", state=" + getState() + ", failureRate=" + getFailureRate()
+                + ", notPermittedCount=" + notPermittedCount + "]";
+    }
+
+    /**
+     * Asks the permission to execute a command.
+     *
+     * @return the generation of the phase permitting the command, to give to
+     * {@link #onResult(long, boolean)}, or -1 if the circuit is open
+     */
+    public long tryAcquirePermission() {
+        while (true) {
+            final Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current.generation;
+                case OPEN:
+                    if (System.nanoTime() - current.openedAt < waitDuration) {
+                        notPermittedCount.incrementAndGet();
+                        return -1;
+                    }
+                    transition(current, new Phase(current.generation + 1, State.HALF_OPEN, current.openedAt,
+                            configuration.permittedCallsInHalfOpenState(), null));
+                    break;
+                default:
+                    if (current.probes.getAndDecrement() > 0) {
+                        return current.generation;
+                    }
+                    notPermittedCount.incrementAndGet();
+                    return -1;
+            }
+        }
+    }
+
+    private Phase closed(final long generation) {
+        return new Phase(generation, State.CLOSED, 0, 0, new FailureRateWindow(configuration.slidingWindowSize()));
+    }
+
+    private Phase open(final long generation) {
+        return new Phase(generation, State.OPEN, System.nanoTime(), 0, null);
+    }
+
+    private void transition(final Phase from, final Phase to) {
+        if (phase.compareAndSet(from, to)) {
+            LOGGER.warn("Circuit breaker {} : {} -> {}", name, from.state, to.state);
+            listener.accept(new CircuitBreakerStateChangedEvent(name, from.state, to.state));
+        }
+    }
+}
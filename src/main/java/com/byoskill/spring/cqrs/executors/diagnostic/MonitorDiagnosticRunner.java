@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.diagnostic;
+
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class MonitorDiagnosticRunner detects the handlers blocking while they
+ * hold a monitor (synchronized block or method). Such handlers serialize the
+ * commands on the fork join pool and pin the carrier thread of a virtual thread.
+ * <p>
+ * When enabled in the {@link ExecutionConfiguration}, a daemon thread samples
+ * the threads executing a handler. A warning is logged the first time a command
+ * type is caught waiting while holding a monitor or blocked on a monitor, the
+ * occurrences are counted in {@link #getStatistics()}.
+ * <p>
+ * The JVM does not expose the state of the virtual threads through the
+ * {@link ThreadMXBean}, they are skipped. Use the JVM option
+ * <code>-Djdk.tracePinnedThreads=short</code> to trace their pinning.
+ */
+public class MonitorDiagnosticRunner implements AsyncCommandRunner {
+
+    /**
+     * The occurrences of monitor issues for a command type.
+     */
+    public static class MonitorStatistics {
+        private final AtomicLong blockedOnMonitor = new AtomicLong();
+        private final AtomicLong waitingWithMonitor = new AtomicLong();
+
+        /**
+         * Gets the number of samples where the handler was blocked, waiting to
+         * enter a monitor.
+         *
+         * @return the number of samples
+         */
+        public long getBlockedOnMonitor() {
+            return blockedOnMonitor.get();
+        }
+
+        /**
+         * Gets the number of samples where the handler was waiting (I/O, sleep,
+         * lock...) while holding a monitor.
+         *
+         * @return the number of samples
+         */
+        public long getWaitingWithMonitor() {
+            return waitingWithMonitor.get();
+        }
+
+        @Override
+        public String toString() {
+            return "MonitorStatistics [blockedOnMonitor=" + blockedOnMonitor + ", waitingWithMonitor="
+                    + waitingWithMonitor + "]";
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitorDiagnosticRunner.class);
+
+    private static final Method IS_VIRTUAL = findIsVirtual();
+
+    private static Method findIsVirtual() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(final Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (final ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private final ExecutionConfiguration configuration;
+
+    private final ConcurrentMap<Thread, Class<?>> runningHandlers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, MonitorStatistics> statistics = new ConcurrentHashMap<>();
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private volatile ScheduledExecutorService sampler;
+
+    @Autowired
+    public MonitorDiagnosticRunner(final ExecutionConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        if (sampler == null) {
+            startSampler();
+        }
+        final Thread thread = Thread.currentThread();
+        if (isVirtual(thread)) {
+            return chain.execute(context);
+        }
+        runningHandlers.put(thread, context.getDescriptor().getCommandType());
+        try {
+            return chain.execute(context);
+        } finally {
+            runningHandlers.remove(thread);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * The thread is sampled while it executes the synchronous part of the
+     * handler, an asynchronous handler holds no monitor of this thread afterwards.
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        if (sampler == null) {
+            startSampler();
+        }
+        final Thread thread = Thread.currentThread();
+        if (isVirtual(thread)) {
+            return chain.executeAsync(context);
+        }
+        runningHandlers.put(thread, context.getDescriptor().getCommandType());
+        try {
+            return chain.executeAsync(context);
+        } finally {
+            runningHandlers.remove(thread);
+        }
+    }
+
+    /**
+     * Gets the monitor issues detected per command type.
+     *
+     * @return the statistics
+     */
+    public Map<Class<?>, MonitorStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new HashMap<>(statistics));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return configuration.isMonitorDiagnosticEnabled() && threadMXBean.isObjectMonitorUsageSupported();
+    }
+
+    void sample() {
+        for (final Map.Entry<Thread, Class<?>> entry : runningHandlers.entrySet()) {
+            final ThreadInfo[] infos = threadMXBean.getThreadInfo(new long[]{entry.getKey().getId()}, true, false);
+            final ThreadInfo info = infos[0];
+            // The thread may have finished the handler since the sample began
+            if (info == null || runningHandlers.get(entry.getKey()) != entry.getValue()) {
+                continue;
+            }
+            switch (info.getThreadState()) {
+                case BLOCKED:
+                    report(entry.getValue(), info, true);
+                    break;
+                case WAITING:
+                case TIMED_WAITING:
+                    if (info.getLockedMonitors().length > 0) {
+                        report(entry.getValue(), info, false);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void report(final Class<?> commandType, final ThreadInfo info, final boolean blocked) {
+        // Only the sampler thread updates the statistics
+        MonitorStatistics stats = statistics.get(commandType);
+        final boolean first = stats == null;
+        if (first) {
+            stats = new MonitorStatistics();
+            statistics.put(commandType, stats);
+        }
+        if (blocked) {
+            stats.blockedOnMonitor.incrementAndGet();
+        } else {
+            stats.waitingWithMonitor.incrementAndGet();
+        }
+        if (!first) {
+            return;
+        }
+        if (blocked) {
+            LOGGER.warn("[MONITOR][{}] handler blocked on {} owned by {}", commandType.getName(), info.getLockName(),
+                    info.getLockOwnerName());
+        } else {
+            final MonitorInfo monitor = info.getLockedMonitors()[0];
+            LOGGER.warn("[MONITOR][{}] handler {} while holding {} locked at {}", commandType.getName(),
+                    info.getThreadState(), monitor, monitor.getLockedStackFrame());
+        }
+    }
+
+    private synchronized void startSampler() {
+        if (sampler != null) {
+            return;
+        }
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cqrs-monitor-diagnostic");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = configuration.getMonitorDiagnosticInterval();
+        executor.scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("Sampling the command handlers holding monitors every {} ms", interval);
+        sampler = executor;
+    }
+}
@@ -10,18 +10,26 @@
  */
 package com.byoskill.spring.cqrs.executors.event;
 
-import com.byoskill.spring.cqrs.annotations.ReturnEventOnSuccess;
+import com.byoskill.spring.cqrs.api.CommandBatch;
 import com.byoskill.spring.cqrs.api.EventThrower;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
 import com.byoskill.spring.cqrs.gate.api.EventBusService;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
-public class EventThrowerRunner implements CommandRunner {
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+public class EventThrowerRunner implements AsyncCommandRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(EventThrowerRunner.class);
     private final EventBusService eventBusService;
 
@@ -38,17 +46,7 @@ public class EventThrowerRunner implements CommandRunner {
                 : null;
         try {
             res = chain.execute(context);
-            if (handler != null) {
-                eventBusService.publishEvent(handler.eventOnSuccess(res));
-            } else {
-                final Class<?> ultimateTargetClass = AopProxyUtils.ultimateTargetClass(context.handler());
-                if (ultimateTargetClass.isAnnotationPresent(ReturnEventOnSuccess.class)) {
-                    LOGGER.info("Command {} is sending the event {} as result", context.getRawCommand(), res);
-                    eventBusService.publishEvent(res);
-                    res = null;
-                }
-            }
-
+            res = publishEvents(context, handler, res);
         } catch (final Exception t) {
             if (handler != null) {
                 eventBusService.publishEvent(handler.eventOnFailure(t));
@@ -57,4 +55,75 @@ public class EventThrowerRunner implements CommandRunner {
         }
         return res;
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final EventThrower handler = context.handler() instanceof EventThrower ? (EventThrower) context.handler()
+                : null;
+        return chain.executeAsync(context).handle((res, failure) -> {
+            if (failure == null) {
+                return publishEvents(context, handler, res);
+            }
+            final Throwable t = CompletionStages.unwrap(failure);
+            if (handler != null && t instanceof Exception) {
+                eventBusService.publishEvent(handler.eventOnFailure(t));
+            }
+            throw new CompletionException(t);
+        });
+    }
+
+    /**
+     * Publishes the events of a successful execution.
+     *
+     * @return the result of the command, null if it is published as an event
+     */
+    private Object publishEvents(final CommandExecutionContext context, final EventThrower handler,
+                                 final Object res) {
+        if (context.getRawCommand() instanceof CommandBatch) {
+            return publishBatchEvents(context, handler, (List<?>) res);
+        }
+        if (handler != null) {
+            eventBusService.publishEvent(handler.eventOnSuccess(res));
+        } else if (context.getDescriptor().isReturnEventOnSuccess()) {
+            LOGGER.info("Command {} is sending the event {} as result", context.getRawCommand(), res);
+            eventBusService.publishEvent(res);
+            return null;
+        }
+        return res;
+    }
+
+    /**
+     * Publishes the events of a batch, one per result.
+     */
+    private List<?> publishBatchEvents(final CommandExecutionContext context, final EventThrower handler,
+                                       final List<?> results) {
+        if (handler != null) {
+            for (final Object result : results) {
+                eventBusService.publishEvent(handler.eventOnSuccess(result));
+            }
+            return results;
+        }
+        if (!context.getDescriptor().isReturnEventOnSuccess()) {
+            return results;
+        }
+        LOGGER.info("Commands {} are sending the events {} as result", context.getRawCommand(), results);
+        for (final Object result : results) {
+            eventBusService.publishEvent(result);
+        }
+        return new ArrayList<>(Collections.nCopies(results.size(), null));
+    }
+
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return descriptor.isEventProducer();
+    }
 }
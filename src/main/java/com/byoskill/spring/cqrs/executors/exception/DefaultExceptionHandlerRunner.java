@@ -10,17 +10,22 @@
  */
 package com.byoskill.spring.cqrs.executors.exception;
 
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
 import com.byoskill.spring.cqrs.gate.api.CommandExecutionException;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
 /**
  * The Class DefaultExceptionHandlerRunner defines the last command runner.
  */
-public class DefaultExceptionHandlerRunner implements CommandRunner {
+public class DefaultExceptionHandlerRunner implements AsyncCommandRunner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultExceptionHandlerRunner.class);
 
@@ -50,4 +55,28 @@ public class DefaultExceptionHandlerRunner implements CommandRunner {
         return result;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        return chain.executeAsync(context).handle((result, failure) -> {
+            if (failure == null) {
+                return result;
+            }
+            final Throwable t = CompletionStages.unwrap(failure);
+            if (!(t instanceof Exception)) {
+                throw new CompletionException(t);
+            }
+            LOGGER.error("Command={} returned an exception {}", context.getRawCommand(), t.getMessage(), t);
+            throw new CommandExecutionException(context.getRawCommand(), t);
+        });
+    }
+
 }
@@ -10,19 +10,30 @@
  */
 package com.byoskill.spring.cqrs.executors.impl;
 
+import com.byoskill.spring.cqrs.api.AsyncCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.CommandBatch;
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.gate.api.CqrsException;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * The Class DefaultCommandRunner describes the default behaviour to execute a
- * command.
+ * command. In an asynchronous chain, the future returned by an
+ * {@link AsyncCommandServiceSpec} is returned without waiting for it.
  */
-public class DefaultCommandRunner implements CommandRunner {
+public class DefaultCommandRunner implements AsyncCommandRunner {
 
     /**
      * The Constant LOGGER.
@@ -34,6 +45,14 @@ public class DefaultCommandRunner implements CommandRunner {
      */
     private final CommandServiceSpec commandServiceHandler;
 
+    /**
+     * Instantiates a new default command runner executing the handler of the
+     * execution context. It can be shared by every command type.
+     */
+    public DefaultCommandRunner() {
+        this(null);
+    }
+
     /**
      * Instantiates a new default command runner.
      *
@@ -56,7 +75,47 @@ public class DefaultCommandRunner implements CommandRunner {
     public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
             throws RuntimeException {
         Validate.isTrue(chain == null);
-        return commandServiceHandler.handle(context.getRawCommand());
+        final CommandServiceSpec handler = commandServiceHandler != null ? commandServiceHandler : context.handler();
+        if (context.getRawCommand() instanceof CommandBatch) {
+            return handleAll((BatchCommandServiceSpec) handler, (CommandBatch) context.getRawCommand());
+        }
+        return handler.handle(context.getRawCommand());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final CommandServiceSpec handler = commandServiceHandler != null ? commandServiceHandler : context.handler();
+        if (!(handler instanceof AsyncCommandServiceSpec) || context.getRawCommand() instanceof CommandBatch) {
+            return CompletionStages.supply(() -> execute(context, null));
+        }
+        final CompletableFuture<Object> future = ((AsyncCommandServiceSpec) handler)
+                .handleAsync(context.getRawCommand());
+        if (future == null) {
+            return CompletionStages.failed(new CqrsException("The handler " + handler.getClass().getName()
+                    + " returned no future for " + context.getRawCommand()));
+        }
+        LOGGER.trace("Command {} is handled asynchronously", context.getRawCommand());
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<?> handleAll(final BatchCommandServiceSpec handler, final CommandBatch batch) {
+        final List<?> results = handler.handleAll(batch.getCommands());
+        if (results == null || results.size() != batch.size()) {
+            throw new CqrsException("The handler " + handler.getClass().getName() + " returned "
+                    + (results == null ? "no result" : results.size() + " results") + " for " + batch);
+        }
+        return results;
     }
 
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.impl;
+
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunner;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The Class SyncCommandRunnerAdapter executes a synchronous runner in an
+ * asynchronous chain. The runner holds its thread until the next steps
+ * complete.
+ */
+public class SyncCommandRunnerAdapter implements AsyncCommandRunner {
+
+    /**
+     * Adapts a runner to the asynchronous contract, unless it implements it.
+     *
+     * @param runner the runner
+     * @return the asynchronous runner
+     */
+    public static AsyncCommandRunner adapt(final CommandRunner runner) {
+        if (runner instanceof AsyncCommandRunner) {
+            return (AsyncCommandRunner) runner;
+        }
+        return new SyncCommandRunnerAdapter(runner);
+    }
+
+    private final CommandRunner runner;
+
+    /**
+     * Instantiates a new sync command runner adapter.
+     *
+     * @param runner the synchronous runner
+     */
+    public SyncCommandRunnerAdapter(final CommandRunner runner) {
+        this.runner = runner;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        return runner.execute(context, chain);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final CommandRunnerChain syncChain = chain == null ? null
+                : ctx -> CompletionStages.join(chain.executeAsync(ctx));
+        return CompletionStages.supply(() -> runner.execute(context, syncChain));
+    }
+
+    /**
+     * Gets the adapted runner.
+     *
+     * @return the runner
+     */
+    public CommandRunner getRunner() {
+        return runner;
+    }
+
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return runner.isApplicable(descriptor);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncCommandRunnerAdapter [runner=" + runner + "]";
+    }
+}
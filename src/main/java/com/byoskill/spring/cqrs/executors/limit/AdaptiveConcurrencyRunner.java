@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.limit;
+
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.utils.concurrent.AdaptiveLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class AdaptiveConcurrencyRunner limits the number of commands in flight
+ * of each command type with an {@link AdaptiveLimiter}. The limit decreases
+ * when the latency of the command type increases (a slow downstream service)
+ * and grows back when it recovers. The commands over the limit wait without
+ * holding a thread, then are rejected when too many are waiting. A waiting
+ * command is resumed on the executor of its command type.
+ * <p>
+ * The runner is applied when the adaptive concurrency is enabled in the
+ * {@link ExecutionConfiguration}. A batch of commands counts as one command in
+ * flight.
+ */
+public class AdaptiveConcurrencyRunner implements AsyncCommandRunner {
+
+    private final ExecutionConfiguration configuration;
+
+    private final ConcurrentMap<Class<?>, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdaptiveConcurrencyRunner(final ExecutionConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        return getLimiter(context.getDescriptor()).submit(() -> chain.executeAsync(context),
+                context.getExecutor());
+    }
+
+    /**
+     * Gets the limiters of the command types, with their current limit and round
+     * trip times.
+     *
+     * @return the limiters per command type
+     */
+    public Map<Class<?>, AdaptiveLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return configuration.isAdaptiveConcurrencyEnabled();
+    }
+
+    private AdaptiveLimiter getLimiter(final CommandTypeDescriptor descriptor) {
+        final AdaptiveLimiter limiter = limiters.get(descriptor.getCommandType());
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(descriptor.getCommandType(),
+                type -> new AdaptiveLimiter(configuration.getAdaptiveConcurrencyInitialLimit(),
+                        configuration.getAdaptiveConcurrencyMaxLimit(),
+                        configuration.getAdaptiveConcurrencyQueueCapacity()));
+    }
+}
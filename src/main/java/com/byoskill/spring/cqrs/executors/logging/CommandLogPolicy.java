@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.logging;
+
+import com.byoskill.spring.cqrs.annotations.LogPolicy;
+import com.byoskill.spring.cqrs.api.LoggingConfiguration;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class CommandLogPolicy contains the logging policy of a command type :
+ * its sampling, its levels and the rate limit of its failures.
+ */
+public final class CommandLogPolicy {
+
+    private final long failureInterval;
+
+    private final Level failureLevel;
+
+    private final Level level;
+
+    private final int maxPayloadLength;
+
+    private final AtomicLong nextFailure = new AtomicLong(System.nanoTime());
+
+    private final double sampleRate;
+
+    private final AtomicLong suppressedFailures = new AtomicLong();
+
+    /**
+     * Instantiates a new command log policy.
+     *
+     * @param policy        the policy of the command type, may be null
+     * @param configuration the logging configuration with the defaults
+     */
+    public CommandLogPolicy(final LogPolicy policy, final LoggingConfiguration configuration) {
+        final long interval = policy == null || policy.failureInterval() < 0 ? configuration.getLogFailureInterval()
+                : policy.failureInterval();
+        failureInterval = TimeUnit.MILLISECONDS.toNanos(interval);
+        failureLevel = policy == null ? Level.ERROR : policy.failureLevel();
+        level = policy == null ? Level.INFO : policy.level();
+        maxPayloadLength = policy == null || policy.maxPayloadLength() < 0 ? configuration.getLogMaxPayloadLength()
+                : policy.maxPayloadLength();
+        sampleRate = policy == null || policy.sampleRate() < 0 ? configuration.getLogSampleRate()
+                : policy.sampleRate();
+    }
+
+    /**
+     * Gets the level of the failures.
+     *
+     * @return the failure level
+     */
+    public Level getFailureLevel() {
+        return failureLevel;
+    }
+
+    /**
+     * Gets the level of the commands and of their results.
+     *
+     * @return the level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the maximum number of characters logged for a command or a result.
+     *
+     * @return the max payload length
+     */
+    public int getMaxPayloadLength() {
+        return maxPayloadLength;
+    }
+
+    /**
+     * Gets the sample rate.
+     *
+     * @return the sample rate
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Gets the number of failures not logged since the last logged failure.
+     *
+     * @return the suppressed failures
+     */
+    public long getSuppressedFailures() {
+        return suppressedFailures.get();
+    }
+
+    /**
+     * Decides if a command is logged.
+     *
+     * @return true, if the command is sampled
+     */
+    public boolean sample() {
+        return sampleRate >= 1.0 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Decides if a failure is logged : at most one failure is logged per
+     * interval.
+     *
+     * @return the number of failures suppressed since the last logged failure,
+     * or -1 if this failure is not logged
+     */
+    public long tryLogFailure() {
+        if (failureInterval <= 0) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        final long next = nextFailure.get();
+        if (now - next >= 0 && nextFailure.compareAndSet(next, now + failureInterval)) {
+            return suppressedFailures.getAndSet(0);
+        }
+        suppressedFailures.incrementAndGet();
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandLogPolicy [failureInterval=" + TimeUnit.NANOSECONDS.toMillis(failureInterval)
+                + ", failureLevel=" + failureLevel + ", level=" + level + ", maxPayloadLength=" + maxPayloadLength
+                + ", sampleRate=" + sampleRate + ", suppressedFailures=" + suppressedFailures + "]";
+    }
+}
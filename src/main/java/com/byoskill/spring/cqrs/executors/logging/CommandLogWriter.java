@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.logging;
+
+import com.byoskill.spring.cqrs.utils.concurrent.MpscRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Class CommandLogWriter renders the log records of the commands.
+ * <p>
+ * The threads executing the commands only push a record into a lock-free ring
+ * buffer : the commands and the results are converted to strings, truncated
+ * and logged by a single logging thread, which sets the "command" MDC entry
+ * only when the command type changes. When the buffer is full, the records are
+ * dropped and counted. Without buffer, the records are rendered on the calling
+ * thread.
+ */
+public class CommandLogWriter {
+
+    /**
+     * The phase of a command execution.
+     */
+    enum Phase {
+        FAILURE, START, SUCCESS
+    }
+
+    /**
+     * A log record, rendered later.
+     */
+    private static final class Record {
+
+        private final Object command;
+
+        private final String commandType;
+
+        private final Phase phase;
+
+        private final CommandLogPolicy policy;
+
+        private final Object result;
+
+        private final long suppressedFailures;
+
+        Record(final Phase phase, final CommandLogPolicy policy, final Object command, final Object result,
+               final long suppressedFailures) {
+            this.phase = phase;
+            this.policy = policy;
+            this.command = command;
+            commandType = command.getClass().getName();
+            this.result = result;
+            this.suppressedFailures = suppressedFailures;
+        }
+    }
+
+    static final String MDC_KEY = "command";
+
+    // Keeps the logger of the runner, the records were logged by it
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandLoggingRunner.class);
+
+    private static final long MAX_IDLE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    static boolean isEnabled(final Level level) {
+        switch (level) {
+            case ERROR:
+                return LOGGER.isErrorEnabled();
+            case WARN:
+                return LOGGER.isWarnEnabled();
+            case INFO:
+                return LOGGER.isInfoEnabled();
+            case DEBUG:
+                return LOGGER.isDebugEnabled();
+            default:
+                return LOGGER.isTraceEnabled();
+        }
+    }
+
+    private static String abbreviate(final Object payload, final int maxLength) {
+        final String text = String.valueOf(payload);
+        if (maxLength < 0 || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...(" + (text.length() - maxLength) + " more characters)";
+    }
+
+    private static void log(final Level level, final String format, final Object... arguments) {
+        switch (level) {
+            case ERROR:
+                LOGGER.error(format, arguments);
+                break;
+            case WARN:
+                LOGGER.warn(format, arguments);
+                break;
+            case INFO:
+                LOGGER.info(format, arguments);
+                break;
+            case DEBUG:
+                LOGGER.debug(format, arguments);
+                break;
+            default:
+                LOGGER.trace(format, arguments);
+                break;
+        }
+    }
+
+    private final MpscRingBuffer<Record> buffer;
+
+    private final LongAdder dropped = new LongAdder();
+
+    // Written by the logging thread only
+    private String mdcCommandType;
+
+    private final LongAdder rendered = new LongAdder();
+
+    private final Thread renderer;
+
+    private volatile boolean running = true;
+
+    private volatile boolean waiting;
+
+    /**
+     * Instantiates a new command log writer.
+     *
+     * @param capacity the capacity of the buffer, 0 renders the records on the
+     *                 calling thread
+     */
+    public CommandLogWriter(final int capacity) {
+        if (capacity <= 0) {
+            buffer = null;
+            renderer = null;
+            return;
+        }
+        buffer = new MpscRingBuffer<>(capacity);
+        renderer = new Thread(this::drain, "cqrs-command-logging");
+        renderer.setDaemon(true);
+        renderer.start();
+    }
+
+    /**
+     * Gets the number of records dropped because the buffer was full.
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of records waiting to be rendered.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    /**
+     * Gets the number of records rendered.
+     *
+     * @return the rendered count
+     */
+    public long getRenderedCount() {
+        return rendered.sum();
+    }
+
+    /**
+     * Stops the logging thread after it has rendered the pending records.
+     */
+    public void shutdown() {
+        if (renderer == null || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(renderer);
+        try {
+            renderer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CommandLogWriter [capacity=" + (buffer == null ? 0 : buffer.getCapacity()) + ", dropped="
+                + dropped + ", pending=" + getPendingCount() + ", rendered=" + rendered + "]";
+    }
+
+    void failure(final CommandLogPolicy policy, final Object command, final Throwable failure,
+                 final long suppressedFailures) {
+        write(new Record(Phase.FAILURE, policy, command, failure, suppressedFailures));
+    }
+
+    void start(final CommandLogPolicy policy, final Object command) {
+        write(new Record(Phase.START, policy, command, null, 0));
+    }
+
+    void success(final CommandLogPolicy policy, final Object command, final Object result) {
+        write(new Record(Phase.SUCCESS, policy, command, result, 0));
+    }
+
+    private void drain() {
+        while (true) {
+            final Record record = buffer.poll();
+            if (record != null) {
+                if (!record.commandType.equals(mdcCommandType)) {
+                    MDC.put(MDC_KEY, record.commandType);
+                    mdcCommandType = record.commandType;
+                }
+                render(record);
+                continue;
+            }
+            if (!running && buffer.size() == 0) {
+                MDC.remove(MDC_KEY);
+                return;
+            }
+            waiting = true;
+            if (running && buffer.size() == 0) {
+                LockSupport.parkNanos(this, MAX_IDLE);
+            }
+            waiting = false;
+        }
+    }
+
+    private void render(final Record record) {
+        final int maxLength = record.policy.getMaxPayloadLength();
+        try {
+            switch (record.phase) {
+                case START:
+                    log(record.policy.getLevel(), "Command to be executed : {}",
+                            abbreviate(record.command, maxLength));
+                    break;
+                case SUCCESS:
+                    log(record.policy.getLevel(), "Command has been executed with success {} with the result {}",
+                            abbreviate(record.command, maxLength), abbreviate(record.result, maxLength));
+                    break;
+                default:
+                    if (record.suppressedFailures > 0) {
+                        log(record.policy.getFailureLevel(),
+                                "Command {} has failed with informations {} for the reason {} ({} similar failures not logged)",
+                                record.commandType, abbreviate(record.command, maxLength), record.result,
+                                record.suppressedFailures);
+                    } else {
+                        log(record.policy.getFailureLevel(),
+                                "Command {} has failed with informations {} for the reason {}", record.commandType,
+                                abbreviate(record.command, maxLength), record.result);
+                    }
+                    break;
+            }
+            rendered.increment();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Cannot log the command {}", record.commandType, e);
+        }
+    }
+
+    private void write(final Record record) {
+        if (buffer == null) {
+            final String previous = MDC.get(MDC_KEY);
+            try {
+                MDC.put(MDC_KEY, record.commandType);
+                render(record);
+            } finally {
+                if (previous == null) {
+                    MDC.remove(MDC_KEY);
+                } else {
+                    MDC.put(MDC_KEY, previous);
+                }
+            }
+            return;
+        }
+        if (!buffer.offer(record)) {
+            dropped.increment();
+        } else if (waiting) {
+            LockSupport.unpark(renderer);
+        }
+    }
+}
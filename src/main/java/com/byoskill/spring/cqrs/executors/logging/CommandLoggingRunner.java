@@ -10,21 +10,40 @@
  */
 package com.byoskill.spring.cqrs.executors.logging;
 
+import com.byoskill.spring.cqrs.annotations.LogPolicy;
 import com.byoskill.spring.cqrs.api.LoggingConfiguration;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 
-public class CommandLoggingRunner implements CommandRunner {
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(CommandLoggingRunner.class);
+/**
+ * The Class CommandLoggingRunner logs the commands, their results and their
+ * failures with the {@link LogPolicy} of their type : a sample of the commands
+ * is logged, the repeated failures are rate limited. The records are rendered
+ * by the {@link CommandLogWriter}, off the thread executing the command.
+ * <p>
+ * The "command" MDC entry holds the command type on the thread executing the
+ * command, while the handler is called.
+ */
+public class CommandLoggingRunner implements AsyncCommandRunner {
 
     private final LoggingConfiguration configuration;
 
+    private final ConcurrentMap<Class<?>, CommandLogPolicy> policies = new ConcurrentHashMap<>();
+
+    private final CommandLogWriter writer;
+
     /**
      * Instantiates a new command logging service.
      *
@@ -34,6 +53,7 @@ public class CommandLoggingRunner implements CommandRunner {
     public CommandLoggingRunner(final LoggingConfiguration configuration) {
         super();
         this.configuration = configuration;
+        writer = new CommandLogWriter(configuration.getLogBufferCapacity());
     }
 
     /*
@@ -47,35 +67,122 @@ public class CommandLoggingRunner implements CommandRunner {
     @Override
     public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
             throws RuntimeException {
-        Object res = null;
+        MDC.put(CommandLogWriter.MDC_KEY, context.getDescriptor().getCommandType().getName());
         try {
-            MDC.put("command", context.getRawCommand().getClass().getName());
-            if (configuration.isLoggingEnabled()) {
-                LOGGER.info("Command to be executed : {}", context.getRawCommand());
+            if (!configuration.isLoggingEnabled()) {
+                return chain.execute(context);
             }
-            res = chain.execute(context);
-            if (configuration.isLoggingEnabled()) {
-                LOGGER.info("Command has been executed with success {} with the result {}",
-                        context.getRawCommand(), res);
+            final CommandLogPolicy policy = getPolicy(context.getDescriptor());
+            final boolean sampled = logStart(policy, context);
+            final Object res;
+            try {
+                res = chain.execute(context);
+            } catch (final Exception t) {
+                logFailure(policy, context, t);
+                throw t;
             }
-        } catch (final Exception t) {
-            if (configuration.isLoggingEnabled()) {
-                final Object command = context.getRawCommand();
-
-                if (t != null) {
-                    LOGGER.error("Command {} has failed with informations {} for the reason {}",
-                            command.getClass().getName(),
-                            command,
-                            t);
-                } else {
-                    LOGGER.error("Command {} with informations {} has failed.", command.getClass().getName(), command);
-                }
+            if (sampled) {
+                writer.success(policy, context.getRawCommand(), res);
+            }
+            return res;
+        } finally {
+            MDC.remove(CommandLogWriter.MDC_KEY);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final CompletionStage<Object> stage;
+        final CommandLogPolicy policy;
+        final boolean sampled;
+        MDC.put(CommandLogWriter.MDC_KEY, context.getDescriptor().getCommandType().getName());
+        try {
+            if (!configuration.isLoggingEnabled()) {
+                return chain.executeAsync(context);
             }
-            throw t;
+            policy = getPolicy(context.getDescriptor());
+            sampled = logStart(policy, context);
+            stage = chain.executeAsync(context);
         } finally {
-            MDC.remove("command");
+            MDC.remove(CommandLogWriter.MDC_KEY);
+        }
+        return stage.whenComplete((res, failure) -> {
+            if (failure != null) {
+                logFailure(policy, context, CompletionStages.unwrap(failure));
+            } else if (sampled) {
+                writer.success(policy, context.getRawCommand(), res);
+            }
+        });
+    }
+
+    /**
+     * Gets the logging policies.
+     *
+     * @return the logging policies per command type
+     */
+    public Map<Class<?>, CommandLogPolicy> getPolicies() {
+        return Collections.unmodifiableMap(policies);
+    }
+
+    /**
+     * Gets the writer rendering the log records.
+     *
+     * @return the writer
+     */
+    public CommandLogWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Stops the logging thread after it has rendered the pending records.
+     */
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    private LogPolicy getConfiguration(final CommandTypeDescriptor descriptor) {
+        final LogPolicy policy = descriptor.getAnnotation(LogPolicy.class);
+        if (policy != null || descriptor.getHandlerType() == null) {
+            return policy;
+        }
+        return descriptor.getHandlerType().getAnnotation(LogPolicy.class);
+    }
+
+    private CommandLogPolicy getPolicy(final CommandTypeDescriptor descriptor) {
+        final CommandLogPolicy policy = policies.get(descriptor.getCommandType());
+        if (policy != null) {
+            return policy;
+        }
+        return policies.computeIfAbsent(descriptor.getCommandType(),
+                type -> new CommandLogPolicy(getConfiguration(descriptor), configuration));
+    }
+
+    private void logFailure(final CommandLogPolicy policy, final CommandExecutionContext context,
+                            final Throwable t) {
+        if (!CommandLogWriter.isEnabled(policy.getFailureLevel())) {
+            return;
+        }
+        final long suppressedFailures = policy.tryLogFailure();
+        if (suppressedFailures >= 0) {
+            writer.failure(policy, context.getRawCommand(), t, suppressedFailures);
+        }
+    }
+
+    private boolean logStart(final CommandLogPolicy policy, final CommandExecutionContext context) {
+        if (!CommandLogWriter.isEnabled(policy.getLevel()) || !policy.sample()) {
+            return false;
         }
-        return res;
+        writer.start(policy, context.getRawCommand());
+        return true;
     }
 
 }
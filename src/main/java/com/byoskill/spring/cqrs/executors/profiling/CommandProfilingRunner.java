@@ -11,25 +11,64 @@
 package com.byoskill.spring.cqrs.executors.profiling;
 
 import com.byoskill.spring.cqrs.api.LoggingConfiguration;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
-import org.apache.commons.lang3.time.StopWatch;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
 /**
  * The Class CommandProfilingService is handling command execution profiling.
+ * <p>
+ * The latencies are recorded per command type in a {@link LatencyRecorder}.
+ * Every profiling interval, the recorders are rotated and a summary of the
+ * percentiles of each command type executed during the interval is logged. The
+ * timeout scheduler only triggers the rotation, which runs on the given
+ * executor.
  */
-public class CommandProfilingRunner implements CommandRunner {
+public class CommandProfilingRunner implements AsyncCommandRunner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandProfilingRunner.class);
+
     private final LoggingConfiguration configuration;
 
+    private final Executor executor;
+
+    private final ConcurrentMap<Class<?>, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    private volatile ScheduledFuture<?> rotation;
+
+    private volatile boolean running = true;
+
+    private final TimeoutScheduler scheduler;
+
+    /**
+     * Instantiates a new command profiling runner.
+     *
+     * @param configuration the configuration
+     * @param scheduler     the scheduler triggering the rotations
+     * @param executor      the executor rotating the recorders and logging the
+     *                      summaries
+     */
     @Autowired
-    public CommandProfilingRunner(final LoggingConfiguration configuration) {
+    public CommandProfilingRunner(final LoggingConfiguration configuration, final TimeoutScheduler scheduler,
+                                  final Executor executor) {
         this.configuration = configuration;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        scheduleRotation();
     }
 
     /*
@@ -46,21 +85,98 @@ public class CommandProfilingRunner implements CommandRunner {
         if (!configuration.isProfilingEnabled()) {
             return chain.execute(context);
         }
-
-        Object res = null;
-        final StopWatch stopWatch = new StopWatch();
+        final LatencyRecorder recorder = getRecorder(context.getDescriptor().getCommandType());
+        final long start = System.nanoTime();
         try {
+            return chain.execute(context);
+        } finally {
+            recorder.record(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        if (!configuration.isProfilingEnabled()) {
+            return chain.executeAsync(context);
+        }
+        final LatencyRecorder recorder = getRecorder(context.getDescriptor().getCommandType());
+        final long start = System.nanoTime();
+        return chain.executeAsync(context).whenComplete((res, failure) -> recorder.record(System.nanoTime() - start));
+    }
 
-            stopWatch.start();
-            LOGGER.debug("[PROFILING][{}] started", context.getRawCommand());
+    /**
+     * Gets the latency recorders.
+     *
+     * @return the latency recorders per command type
+     */
+    public Map<Class<?>, LatencyRecorder> getRecorders() {
+        return Collections.unmodifiableMap(recorders);
+    }
 
-            res = chain.execute(context);
-        } finally {
-            stopWatch.stop();
-            LOGGER.info("[PROFILING][{}]={} ms", context.getRawCommand(), stopWatch.getTime());
+    /**
+     * Ends the current interval of every command type and logs the latencies of
+     * the command types executed during the interval.
+     */
+    public void rotate() {
+        recorders.forEach((commandType, recorder) -> {
+            final LatencySnapshot snapshot = recorder.rotate();
+            if (snapshot.getCount() > 0) {
+                LOGGER.info("[PROFILING][{}] {}", commandType.getName(), snapshot);
+            }
+        });
+    }
 
+    /**
+     * Stops the periodic rotation.
+     */
+    public void shutdown() {
+        running = false;
+        final ScheduledFuture<?> scheduled = rotation;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    private LatencyRecorder getRecorder(final Class<?> commandType) {
+        final LatencyRecorder recorder = recorders.get(commandType);
+        if (recorder != null) {
+            return recorder;
+        }
+        return recorders.computeIfAbsent(commandType, key -> new LatencyRecorder());
+    }
+
+    private void scheduleRotation() {
+        final long interval = configuration.getProfilingInterval();
+        if (interval <= 0) {
+            return;
+        }
+        rotation = scheduler.schedule(() -> {
+            try {
+                executor.execute(this::rotateAndReschedule);
+            } catch (final RejectedExecutionException e) {
+                LOGGER.warn("Cannot rotate the latency histograms, the profiling summaries are stopped", e);
+            }
+        }, interval);
+    }
+
+    private void rotateAndReschedule() {
+        try {
+            rotate();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Cannot rotate the latency histograms", e);
+        }
+        if (running) {
+            scheduleRotation();
         }
-        return res;
     }
 
 }
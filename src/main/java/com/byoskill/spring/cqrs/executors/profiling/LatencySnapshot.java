@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.profiling;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The Class LatencySnapshot contains the percentiles of the latencies of a
+ * command type, in microseconds.
+ */
+public final class LatencySnapshot {
+
+    /**
+     * The snapshot without latencies.
+     */
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(new Histogram(3));
+
+    private final long count;
+
+    private final long max;
+
+    private final double mean;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long p999;
+
+    /**
+     * Instantiates a new latency snapshot.
+     *
+     * @param histogram the histogram of the latencies
+     */
+    public LatencySnapshot(final Histogram histogram) {
+        count = histogram.getTotalCount();
+        max = histogram.getMaxValue();
+        mean = histogram.getMean();
+        p50 = histogram.getValueAtPercentile(50.0);
+        p90 = histogram.getValueAtPercentile(90.0);
+        p99 = histogram.getValueAtPercentile(99.0);
+        p999 = histogram.getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Gets the number of latencies.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the maximum latency.
+     *
+     * @return the max
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return the mean
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the median latency.
+     *
+     * @return the 50th percentile
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Gets the 90th percentile of the latencies.
+     *
+     * @return the 90th percentile
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * Gets the 99th percentile of the latencies.
+     *
+     * @return the 99th percentile
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Gets the 99.9th percentile of the latencies.
+     *
+     * @return the 99.9th percentile
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + Math.round(mean) + "us p50=" + p50 + "us p90=" + p90 + "us p99=" + p99
+                + "us p999=" + p999 + "us max=" + max + "us";
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.retry;
+
+import com.byoskill.spring.cqrs.annotations.Retry;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import com.byoskill.spring.cqrs.utils.concurrent.RetryBudget;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class RetryRunner retries the commands annotated with {@link Retry}. The
+ * next attempt is scheduled on the timeout scheduler, then executed by the
+ * executor of the command, its bulkhead pool if it declares one : no thread
+ * waits for the backoff.
+ */
+public class RetryRunner implements AsyncCommandRunner {
+
+    /**
+     * The retries of a command type.
+     */
+    public static class RetryStatistics {
+        private final RetryBudget budget;
+        private final AtomicLong retries = new AtomicLong();
+
+        RetryStatistics(final Retry retry) {
+            budget = new RetryBudget(retry.budgetRatio(), retry.budgetMinRetries());
+        }
+
+        /**
+         * Gets the retry budget.
+         *
+         * @return the budget
+         */
+        public RetryBudget getBudget() {
+            return budget;
+        }
+
+        /**
+         * Gets the number of retries.
+         *
+         * @return the retries
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+
+        @Override
+        public String toString() {
+            return "RetryStatistics [retries=" + retries + ", budget=" + budget + "]";
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryRunner.class);
+
+    private static boolean matches(final Throwable failure, final Class<? extends Throwable>[] types) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            for (final Class<? extends Throwable> type : types) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private final TimeoutScheduler scheduler;
+
+    private final ConcurrentMap<Class<?>, RetryStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RetryRunner(final TimeoutScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final Retry retry = getConfiguration(context.getDescriptor());
+        final RetryStatistics typeStatistics = statistics.computeIfAbsent(context.getDescriptor().getCommandType(),
+                type -> new RetryStatistics(retry));
+        typeStatistics.budget.deposit();
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        attempt(context, chain, retry, typeStatistics, 1, result);
+        return result;
+    }
+
+    /**
+     * Gets the retries and the budget of the command types.
+     *
+     * @return the statistics per command type
+     */
+    public Map<Class<?>, RetryStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return getConfiguration(descriptor) != null;
+    }
+
+    private void attempt(final CommandExecutionContext context, final AsyncCommandRunnerChain chain,
+                         final Retry retry, final RetryStatistics typeStatistics, final int attempt,
+                         final CompletableFuture<Object> result) {
+        chain.executeAsync(context).whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+                return;
+            }
+            final Throwable cause = CompletionStages.unwrap(failure);
+            if (attempt >= retry.maxAttempts() || !isRetryable(retry, cause) || !typeStatistics.budget.tryWithdraw()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            typeStatistics.retries.incrementAndGet();
+            final long delay = backoff(retry, attempt);
+            LOGGER.debug("Command {} failed ({}), attempt {} in {} ms", context.getRawCommand(), cause.getMessage(),
+                    attempt + 1, delay);
+            try {
+                scheduler.schedule(() -> {
+                    try {
+                        context.getExecutor().execute(
+                                () -> attempt(context, chain, retry, typeStatistics, attempt + 1, result));
+                    } catch (final RejectedExecutionException e) {
+                        result.completeExceptionally(cause);
+                    }
+                }, delay);
+            } catch (final RejectedExecutionException e) {
+                // Stopped scheduler, the command fails with its last failure
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private long backoff(final Retry retry, final int attempt) {
+        final double delay = Math.min(retry.maxDelay(), retry.delay() * Math.pow(retry.multiplier(), attempt - 1));
+        final double jitter = Math.max(0, Math.min(1, retry.jitter()));
+        return (long) (delay * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private Retry getConfiguration(final CommandTypeDescriptor descriptor) {
+        final Retry retry = descriptor.getAnnotation(Retry.class);
+        if (retry != null || descriptor.getHandlerType() == null) {
+            return retry;
+        }
+        return descriptor.getHandlerType().getAnnotation(Retry.class);
+    }
+
+    private boolean isRetryable(final Retry retry, final Throwable failure) {
+        return !(failure instanceof CommandRejectedException) && matches(failure, retry.retryOn())
+                && !matches(failure, retry.noRetryOn());
+    }
+}
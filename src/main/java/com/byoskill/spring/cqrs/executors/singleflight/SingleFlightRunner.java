@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.singleflight;
+
+import com.byoskill.spring.cqrs.annotations.SingleFlight;
+import com.byoskill.spring.cqrs.api.CommandBatch;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CqrsException;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The Class SingleFlightRunner executes once the concurrent dispatches of equal
+ * commands annotated with {@link SingleFlight}. The first dispatch executes the
+ * rest of the chain, the others wait for its result or its failure.
+ */
+public class SingleFlightRunner implements AsyncCommandRunner {
+
+    /**
+     * The counters of a command type.
+     */
+    public static class SingleFlightStatistics {
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong merged = new AtomicLong();
+
+        /**
+         * Gets the number of executions of the handler.
+         *
+         * @return the executions
+         */
+        public long getExecutions() {
+            return executions.get();
+        }
+
+        /**
+         * Gets the number of dispatches which shared the execution of an equal
+         * command.
+         *
+         * @return the merged dispatches
+         */
+        public long getMerged() {
+            return merged.get();
+        }
+
+        @Override
+        public String toString() {
+            return "SingleFlightStatistics [executions=" + executions + ", merged=" + merged + "]";
+        }
+    }
+
+    /**
+     * The key of a command in flight.
+     */
+    private static final class FlightKey {
+        private final Class<?> commandType;
+        private final Object key;
+
+        FlightKey(final Class<?> commandType, final Object key) {
+            this.commandType = commandType;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof FlightKey)) {
+                return false;
+            }
+            final FlightKey other = (FlightKey) obj;
+            return commandType == other.commandType && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * commandType.hashCode() + Objects.hashCode(key);
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SingleFlightRunner.class);
+
+    private final ConcurrentMap<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, Function<Object, ?>> keyExtractors = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, SingleFlightStatistics> statistics = new ConcurrentHashMap<>();
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        final Object command = context.getRawCommand();
+        if (command instanceof CommandBatch) {
+            return chain.execute(context);
+        }
+        final Class<?> commandType = context.getDescriptor().getCommandType();
+        final SingleFlightStatistics stats = statistics.computeIfAbsent(commandType,
+                type -> new SingleFlightStatistics());
+        final FlightKey key = new FlightKey(commandType, getKeyExtractor(context.getDescriptor()).apply(command));
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            stats.merged.incrementAndGet();
+            LOGGER.debug("Command {} waits for the execution of an equal command", command);
+            return await(leader);
+        }
+        stats.executions.incrementAndGet();
+        try {
+            final Object result = chain.execute(context);
+            flight.complete(result);
+            return result;
+        } catch (final RuntimeException | Error e) {
+            // The followers must not wait forever
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Gets the counters per command type.
+     *
+     * @return the statistics
+     */
+    public Map<Class<?>, SingleFlightStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new HashMap<>(statistics));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return descriptor.getAnnotation(SingleFlight.class) != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final Object command = context.getRawCommand();
+        if (command instanceof CommandBatch) {
+            return chain.executeAsync(context);
+        }
+        final Class<?> commandType = context.getDescriptor().getCommandType();
+        final SingleFlightStatistics stats = statistics.computeIfAbsent(commandType,
+                type -> new SingleFlightStatistics());
+        final FlightKey key = new FlightKey(commandType, getKeyExtractor(context.getDescriptor()).apply(command));
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            stats.merged.incrementAndGet();
+            LOGGER.debug("Command {} waits for the execution of an equal command", command);
+            // A copy, the followers must not complete the flight
+            return leader.thenApply(Function.identity());
+        }
+        stats.executions.incrementAndGet();
+        CompletionStage<Object> execution;
+        try {
+            execution = chain.executeAsync(context);
+        } catch (final RuntimeException e) {
+            execution = CompletionStages.failed(e);
+        }
+        execution.whenComplete((result, failure) -> {
+            if (failure != null) {
+                flight.completeExceptionally(CompletionStages.unwrap(failure));
+            } else {
+                flight.complete(result);
+            }
+            inFlight.remove(key, flight);
+        });
+        return execution;
+    }
+
+    private Object await(final CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (final CompletionException e) {
+            // The followers fail like the leader
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Function<Object, ?> getKeyExtractor(final CommandTypeDescriptor descriptor) {
+        return keyExtractors.computeIfAbsent(descriptor.getCommandType(), type -> {
+            final Class<? extends Function> keyClass = descriptor.getAnnotation(SingleFlight.class).key();
+            if (keyClass == Function.class) {
+                return Function.identity();
+            }
+            try {
+                return keyClass.getConstructor().newInstance();
+            } catch (final ReflectiveOperationException e) {
+                throw new CqrsException("Cannot instantiate the key extractor " + keyClass.getName(), e);
+            }
+        });
+    }
+}
@@ -12,14 +12,21 @@ package com.byoskill.spring.cqrs.executors.throttling;
 
 import com.byoskill.spring.cqrs.annotations.Throttle;
 import com.byoskill.spring.cqrs.api.ThrottlingInterface;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-public class CommandThrottlingRunner implements CommandRunner {
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+public class CommandThrottlingRunner implements AsyncCommandRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandThrottlingRunner.class);
     private final ThrottlingInterface throttlingInterface;
 
@@ -41,13 +48,53 @@ public class CommandThrottlingRunner implements CommandRunner {
             throws RuntimeException {
         Object result = null;
         // Decorate with throttling
-        final Throttle throttle = context.getAnnotation(Throttle.class);
+        final Throttle throttle = context.getDescriptor().getThrottle();
         if (throttle != null) {
             LOGGER.debug("Requiring permit from rate limiter named {}", throttle.value());
-            throttlingInterface.acquirePermit(throttle.value());
+            if (throttle.timeOut() < 0) {
+                throttlingInterface.acquirePermit(throttle.value());
+            } else if (!throttlingInterface.tryAcquirePermit(throttle.value(), throttle.timeOut(),
+                    TimeUnit.MILLISECONDS)) {
+                throw rejected(throttle);
+            }
         }
         result = chain.execute(context);
 
         return result;
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final Throttle throttle = context.getDescriptor().getThrottle();
+        if (throttle == null) {
+            return chain.executeAsync(context);
+        }
+        LOGGER.debug("Requiring permit asynchronously from rate limiter named {}", throttle.value());
+        if (throttle.timeOut() < 0) {
+            return throttlingInterface.acquirePermitAsync(throttle.value())
+                    .thenCompose(permit -> chain.executeAsync(context));
+        }
+        return throttlingInterface.tryAcquirePermitAsync(throttle.value(), throttle.timeOut(), TimeUnit.MILLISECONDS)
+                .thenCompose(granted -> granted ? chain.executeAsync(context)
+                        : CompletionStages.failed(rejected(throttle)));
+    }
+
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        return descriptor.getThrottle() != null;
+    }
+
+    private CommandRejectedException rejected(final Throttle throttle) {
+        return new CommandRejectedException("No permit granted by the rate limiter " + throttle.value() + " within "
+                + throttle.timeOut() + " ms");
+    }
 }
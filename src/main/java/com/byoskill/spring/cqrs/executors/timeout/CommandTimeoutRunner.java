@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.timeout;
+
+import com.byoskill.spring.cqrs.annotations.CommandOptions;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CommandTimeoutException;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class CommandTimeoutRunner enforces {@link CommandOptions#timeOut()} : the
+ * thread executing the handler is interrupted when the deadline passes and the
+ * command fails with a {@link CommandTimeoutException}.
+ */
+public class CommandTimeoutRunner implements AsyncCommandRunner {
+
+    /**
+     * Interrupts the handler thread when the deadline passes. The interruption
+     * and the end of the handler are exclusive, the interruption cannot leak to
+     * the next command executed by the thread.
+     */
+    private static final class Watchdog implements Runnable {
+
+        private boolean finished;
+
+        private final Thread thread;
+
+        private boolean timedOut;
+
+        Watchdog(final Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * Marks the handler as finished.
+         *
+         * @return true, if the handler has been interrupted
+         */
+        synchronized boolean finish() {
+            finished = true;
+            return timedOut;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!finished) {
+                timedOut = true;
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandTimeoutRunner.class);
+
+    private final TimeoutScheduler scheduler;
+
+    @Autowired
+    public CommandTimeoutRunner(final TimeoutScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#execute(com.byoskill.
+     * spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.CommandRunnerChain)
+     */
+    @Override
+    public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
+            throws RuntimeException {
+        final long timeOut = context.getDescriptor().getCommandOptions().timeOut();
+        final Watchdog watchdog = new Watchdog(Thread.currentThread());
+        final ScheduledFuture<?> timer = scheduler.schedule(watchdog, timeOut);
+        Object result = null;
+        RuntimeException failure = null;
+        final boolean timedOut;
+        try {
+            result = chain.execute(context);
+        } catch (final RuntimeException e) {
+            failure = e;
+        } finally {
+            timer.cancel(false);
+            timedOut = watchdog.finish();
+            if (timedOut) {
+                // Clears the interruption of the watchdog
+                Thread.interrupted();
+            }
+        }
+        if (timedOut) {
+            LOGGER.warn("Command {} interrupted after {} ms", context.getRawCommand(), timeOut);
+            throw new CommandTimeoutException(context.getRawCommand(), timeOut, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        final long timeOut = context.getDescriptor().getCommandOptions().timeOut();
+        final long started = System.nanoTime();
+        final Watchdog watchdog = new Watchdog(Thread.currentThread());
+        final ScheduledFuture<?> timer = scheduler.schedule(watchdog, timeOut);
+        final CompletableFuture<Object> execution;
+        final boolean timedOut;
+        try {
+            // The synchronous part of the execution is interrupted as in the synchronous chain
+            execution = chain.executeAsync(context).toCompletableFuture();
+        } finally {
+            timer.cancel(false);
+            timedOut = watchdog.finish();
+            if (timedOut) {
+                // Clears the interruption of the watchdog
+                Thread.interrupted();
+            }
+        }
+        if (timedOut) {
+            LOGGER.warn("Command {} interrupted after {} ms", context.getRawCommand(), timeOut);
+            final Throwable failure = execution.handle((result, t) -> t).getNow(null);
+            return CompletionStages.failed(new CommandTimeoutException(context.getRawCommand(), timeOut,
+                    failure == null ? null : CompletionStages.unwrap(failure)));
+        }
+        // The asynchronous part fails when the remaining time expires, without interruption
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        execution.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(CompletionStages.unwrap(failure));
+            } else {
+                result.complete(value);
+            }
+        });
+        final long remaining = timeOut - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return scheduler.within(result, Math.max(1, remaining),
+                () -> new CommandTimeoutException(context.getRawCommand(), timeOut));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        final CommandOptions options = descriptor.getCommandOptions();
+        return options != null && options.timeOut() > 0;
+    }
+}
@@ -12,10 +12,12 @@
 package com.byoskill.spring.cqrs.executors.tracing;
 
 import com.byoskill.spring.cqrs.api.TraceConfiguration;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
 import com.byoskill.spring.cqrs.gate.impl.TraceCommandExecution;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,6 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * This command listener provides a facility to log and serialize every actions
@@ -32,7 +35,7 @@ import java.io.IOException;
  *
  * @author sleroy
  */
-public class CommandTraceRunner implements CommandRunner {
+public class CommandTraceRunner implements AsyncCommandRunner {
 
     /**
      * The Constant LOGGER.
@@ -94,6 +97,30 @@ public class CommandTraceRunner implements CommandRunner {
         return result;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        return chain.executeAsync(context).whenComplete((result, failure) -> {
+            if (!traceConfiguration.isTracingEnabled()) {
+                return;
+            }
+            if (failure != null) {
+                serializeTrace(TraceCommandExecution.failure(context.getRawCommand(),
+                        CompletionStages.unwrap(failure)));
+            } else {
+                serializeTrace(TraceCommandExecution.success(context.getRawCommand(), result));
+            }
+        });
+    }
+
     /**
      * Flush file.
      *
@@ -10,9 +10,12 @@
  */
 package com.byoskill.spring.cqrs.executors.validating;
 
+import com.byoskill.spring.cqrs.api.CommandBatch;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
-import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
 import com.byoskill.spring.cqrs.gate.api.InvalidCommandException;
 import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
 import org.slf4j.Logger;
@@ -20,8 +23,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintViolationException;
+import java.util.concurrent.CompletionStage;
 
-public class CommandValidatingRunner implements CommandRunner {
+public class CommandValidatingRunner implements AsyncCommandRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandValidatingRunner.class);
     private final ObjectValidation objectValidation;
 
@@ -34,15 +38,55 @@ public class CommandValidatingRunner implements CommandRunner {
     @Override
     public Object execute(final CommandExecutionContext context, final CommandRunnerChain chain)
             throws RuntimeException {
-        final Object command = context.getRawCommand();
+        validateCommand(context.getRawCommand());
+        return chain.execute(context);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner#executeAsync(com.
+     * byoskill.spring.cqrs.executors.api.CommandExecutionContext,
+     * com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain)
+     */
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                final AsyncCommandRunnerChain chain) {
+        validateCommand(context.getRawCommand());
+        return chain.executeAsync(context);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.executors.api.CommandRunner#isApplicable(com.
+     * byoskill.spring.cqrs.executors.api.CommandTypeDescriptor)
+     */
+    @Override
+    public boolean isApplicable(final CommandTypeDescriptor descriptor) {
+        // The command types without constraints skip the validation
+        return objectValidation.isConstrained(descriptor.getCommandType());
+    }
+
+    private void validateCommand(final Object command) {
+        if (command instanceof CommandBatch) {
+            for (final Object element : ((CommandBatch) command).getCommands()) {
+                validate(element);
+            }
+        } else {
+            validate(command);
+        }
+    }
+
+    private void validate(final Object command) {
         LOGGER.debug("Validation of the command {}", command);
         try {
             objectValidation.validate(command);
         } catch (final ConstraintViolationException e) {
             throw new InvalidCommandException(command, e);
         }
-
-        return chain.execute(context);
     }
 
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+/**
+ * The Class CircuitBreakerOpenException is thrown when a command is not executed
+ * because its circuit breaker is open.
+ */
+public class CircuitBreakerOpenException extends CommandRejectedException {
+
+    /**
+     * Instantiates a new circuit breaker open exception.
+     *
+     * @param _message the message
+     */
+    public CircuitBreakerOpenException(final String _message) {
+        super(_message);
+    }
+}
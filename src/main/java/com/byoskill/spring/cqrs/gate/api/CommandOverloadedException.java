@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+/**
+ * The Class CommandOverloadedException is thrown when a command is shed because
+ * it waited too long in the queue of an overloaded executor.
+ */
+public class CommandOverloadedException extends CommandRejectedException {
+
+    /**
+     * Instantiates a new command overloaded exception.
+     *
+     * @param _message the message
+     */
+    public CommandOverloadedException(final String _message) {
+        super(_message);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+/**
+ * The Class CommandRejectedException is thrown when a command is not executed
+ * because the gate is overloaded.
+ */
+public class CommandRejectedException extends CqrsException {
+
+    /**
+     * Instantiates a new command rejected exception.
+     *
+     * @param _message the message
+     */
+    public CommandRejectedException(final String _message) {
+        super(_message);
+    }
+
+    /**
+     * Instantiates a new command rejected exception.
+     *
+     * @param _message the message
+     * @param _cause   the cause
+     */
+    public CommandRejectedException(final String _message, final Throwable _cause) {
+        super(_message, _cause);
+    }
+}
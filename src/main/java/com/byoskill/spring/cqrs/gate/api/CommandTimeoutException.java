@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+/**
+ * The Class CommandTimeoutException is thrown when a command has not been
+ * executed before the deadline declared by its options.
+ */
+public class CommandTimeoutException extends CqrsException {
+
+    /**
+     * Instantiates a new command timeout exception.
+     *
+     * @param _command the command
+     * @param _timeOut the time out in milliseconds
+     */
+    public CommandTimeoutException(final Object _command, final long _timeOut) {
+        this(_command, _timeOut, null);
+    }
+
+    /**
+     * Instantiates a new command timeout exception.
+     *
+     * @param _command the command
+     * @param _timeOut the time out in milliseconds
+     * @param _cause   the failure of the interrupted handler, if any
+     */
+    public CommandTimeoutException(final Object _command, final long _timeOut, final Throwable _cause) {
+        super("The command has not been executed within " + _timeOut + " ms : " + _command, _cause);
+    }
+}
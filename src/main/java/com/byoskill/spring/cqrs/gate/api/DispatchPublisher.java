@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+import org.apache.commons.lang3.Validate;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class DispatchPublisher dispatches the commands of a publisher and
+ * publishes their results.
+ * <p>
+ * At most <code>maxInFlight</code> commands are requested from the upstream
+ * publisher and not yet delivered downstream, whether they are executing or
+ * their result is waiting for the demand of the subscriber. A command is
+ * requested from upstream only when a result has been delivered, the demand of
+ * the subscriber drives the upstream publisher.
+ * <p>
+ * The first failure of a command cancels the upstream subscription and is
+ * signalled to the subscriber. As required by the reactive streams
+ * specification, a null result is a failure.
+ *
+ * @param <R> the type of the results
+ */
+class DispatchPublisher<R> implements Publisher<R> {
+
+    /**
+     * The subscription of a subscriber, it subscribes to the commands.
+     */
+    private final class DispatchSubscription implements Subscription, Subscriber<Object> {
+
+        private volatile boolean cancelled;
+
+        private final Queue<R> completed = new ConcurrentLinkedQueue<>();
+
+        private final Subscriber<? super R> downstream;
+
+        private volatile Throwable error;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final Queue<CompletableFuture<R>> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private boolean terminated;
+
+        private volatile boolean upstreamDone;
+
+        private Subscription upstream;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        DispatchSubscription(final Subscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            final Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onNext(final Object command) {
+            final CompletableFuture<R> future;
+            try {
+                future = gate.dispatchAsync(command, expectedReturnType);
+            } catch (final RuntimeException e) {
+                upstream.cancel();
+                fail(e);
+                return;
+            }
+            outstanding.incrementAndGet();
+            if (ordered) {
+                pending.offer(future);
+            }
+            future.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    fail(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                } else if (result == null) {
+                    fail(new NullPointerException("The command " + command + " returned a null result"));
+                } else {
+                    if (!ordered) {
+                        completed.offer(result);
+                    }
+                    drain();
+                }
+            });
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(maxInFlight);
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                // The drain cancels the commands and signals the error
+                fail(new IllegalArgumentException("Rule 3.9 : the request must be positive, got " + n));
+                return;
+            }
+            long current;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+            } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            drain();
+        }
+
+        /**
+         * Delivers the results to the subscriber, in one thread at a time.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                final long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !cancelled && error == null) {
+                    final R result = poll();
+                    if (result == null) {
+                        break;
+                    }
+                    outstanding.decrementAndGet();
+                    downstream.onNext(result);
+                    ++emitted;
+                }
+                if (cancelled) {
+                    terminated = true;
+                    return;
+                }
+                if (error != null) {
+                    terminated = true;
+                    upstream.cancel();
+                    downstream.onError(error);
+                    return;
+                }
+                if (upstreamDone && outstanding.get() == 0) {
+                    terminated = true;
+                    downstream.onComplete();
+                    return;
+                }
+                if (emitted != 0) {
+                    if (demand != Long.MAX_VALUE) {
+                        requested.addAndGet(-emitted);
+                    }
+                    // The delivered results free room in the window
+                    upstream.request(emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void fail(final Throwable throwable) {
+            if (error == null) {
+                error = throwable;
+            }
+            drain();
+        }
+
+        private R poll() {
+            if (!ordered) {
+                return completed.poll();
+            }
+            final CompletableFuture<R> head = pending.peek();
+            if (head == null || !head.isDone() || head.isCompletedExceptionally()) {
+                // A failure is signalled by the completion of the future
+                return null;
+            }
+            pending.poll();
+            return head.join();
+        }
+    }
+
+    private final Publisher<?> commands;
+
+    private final Class<R> expectedReturnType;
+
+    private final Gate gate;
+
+    private final int maxInFlight;
+
+    private final boolean ordered;
+
+    /**
+     * Instantiates a new dispatch publisher.
+     *
+     * @param gate               the gate dispatching the commands
+     * @param commands           the commands
+     * @param expectedReturnType the expected return type
+     * @param maxInFlight        the maximum number of commands requested and not
+     *                           delivered
+     * @param ordered            true to publish the results in the order of the
+     *                           commands, false to publish them as soon as they
+     *                           are available
+     */
+    DispatchPublisher(final Gate gate, final Publisher<?> commands, final Class<R> expectedReturnType,
+                      final int maxInFlight, final boolean ordered) {
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be positive");
+        this.gate = gate;
+        this.commands = commands;
+        this.expectedReturnType = expectedReturnType;
+        this.maxInFlight = maxInFlight;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super R> subscriber) {
+        Validate.notNull(subscriber, "Rule 1.9 : the subscriber must not be null");
+        commands.subscribe(new DispatchSubscription(subscriber));
+    }
+}
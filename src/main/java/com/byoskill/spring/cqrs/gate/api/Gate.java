@@ -9,6 +9,9 @@
  */
 package com.byoskill.spring.cqrs.gate.api;
 
+import org.reactivestreams.Publisher;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -55,6 +58,26 @@ public interface Gate {
      */
     <R> List<R> dispatchAll(List<?> commands, Class<R> expectedReturnType);
 
+    /**
+     * Dispatch the commands of a publisher asynchronously and publishes their
+     * results. At most <code>maxInFlight</code> commands are requested and not
+     * delivered to the subscriber : the demand of the subscriber is propagated
+     * to the publisher of the commands.
+     *
+     * @param <R>                the generic type
+     * @param commands           the commands
+     * @param expectedReturnType the expected return type
+     * @param maxInFlight        the maximum number of commands in flight
+     * @param ordered            true to publish the results in the order of the
+     *                           commands, false to publish them as soon as they
+     *                           are available
+     * @return the publisher of the results
+     */
+    default <R> Publisher<R> dispatchAll(final Publisher<?> commands, final Class<R> expectedReturnType,
+                                         final int maxInFlight, final boolean ordered) {
+        return new DispatchPublisher<>(this, commands, expectedReturnType, maxInFlight, ordered);
+    }
+
 
     /**
      * Dispatch a command and executes it asynchronously.
@@ -75,6 +98,26 @@ public interface Gate {
      */
     <R> CompletableFuture<R> dispatchAsync(Object command, Class<R> expectedReturnType);
 
+    /**
+     * Dispatch a command and executes it asynchronously. If the command waits
+     * for the executor, it is executed before the commands of the same priority
+     * with a later deadline, and fails with a CommandRejectedException if it has
+     * not started when the deadline expires.
+     * <p>
+     * By default, the deadline is ignored and the command is dispatched with
+     * {@link #dispatchAsync(Object, Class)}.
+     *
+     * @param <R> the generic type
+     * @param command            the command.
+     * @param expectedReturnType the expected return type
+     * @param deadline           the time allowed to the command to start
+     * @return the result of the command.
+     */
+    default <R> CompletableFuture<R> dispatchAsync(final Object command, final Class<R> expectedReturnType,
+                                                   final Duration deadline) {
+        return dispatchAsync(command, expectedReturnType);
+    }
+
     /**
      * Dispatches an event and executes it asynchronously.
      *
@@ -17,7 +17,37 @@ public class DefaultLoggingConfiguration implements LoggingConfiguration {
      * The logging enabled.
      */
     private boolean loggingEnabled = true;
+    private int logBufferCapacity = 8_192;
+    private long logFailureInterval = 1_000;
+    private int logMaxPayloadLength = 1_000;
+    private double logSampleRate = 1.0;
     private boolean profilingEnabled = true;
+    private long profilingInterval = 60_000;
+
+    @Override
+    public int getLogBufferCapacity() {
+        return logBufferCapacity;
+    }
+
+    @Override
+    public long getLogFailureInterval() {
+        return logFailureInterval;
+    }
+
+    @Override
+    public int getLogMaxPayloadLength() {
+        return logMaxPayloadLength;
+    }
+
+    @Override
+    public double getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    @Override
+    public long getProfilingInterval() {
+        return profilingInterval;
+    }
 
     @Override
     public boolean isLoggingEnabled() {
@@ -30,12 +60,32 @@ public class DefaultLoggingConfiguration implements LoggingConfiguration {
         return profilingEnabled;
     }
 
+    public void setLogBufferCapacity(final int logBufferCapacity) {
+        this.logBufferCapacity = logBufferCapacity;
+    }
+
+    public void setLogFailureInterval(final long logFailureInterval) {
+        this.logFailureInterval = logFailureInterval;
+    }
+
     public void setLoggingEnabled(final boolean loggingEnabled) {
         this.loggingEnabled = loggingEnabled;
     }
 
+    public void setLogMaxPayloadLength(final int logMaxPayloadLength) {
+        this.logMaxPayloadLength = logMaxPayloadLength;
+    }
+
+    public void setLogSampleRate(final double logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
     public void setProfilingEnabled(final boolean profilingEnabled) {
         this.profilingEnabled = profilingEnabled;
     }
 
+    public void setProfilingInterval(final long profilingInterval) {
+        this.profilingInterval = profilingInterval;
+    }
+
 }
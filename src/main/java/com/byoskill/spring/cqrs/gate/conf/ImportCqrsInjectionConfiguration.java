@@ -11,14 +11,24 @@
 package com.byoskill.spring.cqrs.gate.conf;
 
 import com.byoskill.spring.cqrs.api.CommandServiceProvider;
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
 import com.byoskill.spring.cqrs.api.LoggingConfiguration;
 import com.byoskill.spring.cqrs.api.ThrottlingInterface;
 import com.byoskill.spring.cqrs.api.TraceConfiguration;
+import com.byoskill.spring.cqrs.executors.cache.CacheInvalidatingEventBusService;
+import com.byoskill.spring.cqrs.executors.cache.CommandCacheRunner;
+import com.byoskill.spring.cqrs.executors.circuitbreaker.CircuitBreakerRunner;
+import com.byoskill.spring.cqrs.executors.diagnostic.MonitorDiagnosticRunner;
 import com.byoskill.spring.cqrs.executors.event.EventThrowerRunner;
 import com.byoskill.spring.cqrs.executors.exception.DefaultExceptionHandlerRunner;
+import com.byoskill.spring.cqrs.executors.limit.AdaptiveConcurrencyRunner;
 import com.byoskill.spring.cqrs.executors.logging.CommandLoggingRunner;
 import com.byoskill.spring.cqrs.executors.profiling.CommandProfilingRunner;
+import com.byoskill.spring.cqrs.executors.retry.RetryRunner;
+import com.byoskill.spring.cqrs.executors.singleflight.SingleFlightRunner;
 import com.byoskill.spring.cqrs.executors.throttling.CommandThrottlingRunner;
+import com.byoskill.spring.cqrs.executors.timeout.CommandTimeoutRunner;
 import com.byoskill.spring.cqrs.executors.tracing.CommandTraceRunner;
 import com.byoskill.spring.cqrs.executors.validating.CommandValidatingRunner;
 import com.byoskill.spring.cqrs.gate.api.EventBusService;
@@ -26,6 +36,7 @@ import com.byoskill.spring.cqrs.gate.impl.CommandExecutorServiceImpl;
 import com.byoskill.spring.cqrs.gate.impl.SpringGate;
 import com.byoskill.spring.cqrs.gate.impl.SpringGateFilters;
 import com.byoskill.spring.cqrs.gate.impl.SpringHandlersProvider;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
 import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
 import com.byoskill.spring.cqrs.workflow.api.CommandRunningWorkflowConfigurer;
 import com.byoskill.spring.cqrs.workflow.impl.CommandRunnerWorkflowService;
@@ -35,8 +46,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 
 import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
 import java.util.Optional;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class ImportCqrsInjectionConfiguration {
@@ -49,15 +61,20 @@ public class ImportCqrsInjectionConfiguration {
      * @param objectValidation       the object validation
      * @param commandWorkflowService the command workflow service
      * @param threadPoolTaskExecutor the thread pool task executor
+     * @param executionConfiguration the execution configuration, the default values
+     *                               when no bean is declared
+     * @param timeoutScheduler       the scheduler of the command deadlines
      * @return the command executor service impl
      */
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
     public CommandExecutorServiceImpl commandExecutorServiceImpl(final LoggingConfiguration configuration,
                                                                  final CommandServiceProvider handlersProvider, final ObjectValidation objectValidation,
-                                                                 final CommandRunnerWorkflowService commandWorkflowService, final ForkJoinPool threadPoolTaskExecutor) {
+                                                                 final CommandRunnerWorkflowService commandWorkflowService, final ExecutorService threadPoolTaskExecutor,
+                                                                 final Optional<ExecutionConfiguration> executionConfiguration,
+                                                                 final TimeoutScheduler timeoutScheduler) {
         return new CommandExecutorServiceImpl(configuration, handlersProvider, objectValidation, commandWorkflowService,
-                threadPoolTaskExecutor);
+                threadPoolTaskExecutor, orDefault(executionConfiguration), timeoutScheduler);
     }
 
     @Bean
@@ -68,8 +85,10 @@ public class ImportCqrsInjectionConfiguration {
 
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
-    public CommandProfilingRunner commandProfilingRunner(final LoggingConfiguration loggingConfiguration) {
-        return new CommandProfilingRunner(loggingConfiguration);
+    public CommandProfilingRunner commandProfilingRunner(final LoggingConfiguration loggingConfiguration,
+                                                         final TimeoutScheduler timeoutScheduler,
+                                                         final ExecutorService executorService) {
+        return new CommandProfilingRunner(loggingConfiguration, timeoutScheduler, executorService);
     }
 
     @Bean
@@ -78,6 +97,12 @@ public class ImportCqrsInjectionConfiguration {
         return new CommandThrottlingRunner(throttlingInterface);
     }
 
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public CommandTimeoutRunner commandTimeout(final TimeoutScheduler timeoutScheduler) {
+        return new CommandTimeoutRunner(timeoutScheduler);
+    }
+
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
     public CommandTraceRunner commandTrace(final TraceConfiguration traceConfiguration) {
@@ -90,6 +115,25 @@ public class ImportCqrsInjectionConfiguration {
         return new CommandValidatingRunner(objectValidation);
     }
 
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public AdaptiveConcurrencyRunner adaptiveConcurrencyRunner(
+            final Optional<ExecutionConfiguration> executionConfiguration) {
+        return new AdaptiveConcurrencyRunner(orDefault(executionConfiguration));
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public CircuitBreakerRunner circuitBreakerRunner(final EventBusService eventBusService) {
+        return new CircuitBreakerRunner(eventBusService);
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public CommandCacheRunner commandCacheRunner() {
+        return new CommandCacheRunner();
+    }
+
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
     public DefaultExceptionHandlerRunner defaultExceptionHandlerRunner() {
@@ -98,8 +142,16 @@ public class ImportCqrsInjectionConfiguration {
 
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
-    public EventThrowerRunner eventThrower(final EventBusService eventBusService) {
-        return new EventThrowerRunner(eventBusService);
+    public EventThrowerRunner eventThrower(final EventBusService eventBusService,
+                                           final CommandCacheRunner commandCacheRunner) {
+        return new EventThrowerRunner(new CacheInvalidatingEventBusService(commandCacheRunner, eventBusService));
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public MonitorDiagnosticRunner monitorDiagnosticRunner(
+            final Optional<ExecutionConfiguration> executionConfiguration) {
+        return new MonitorDiagnosticRunner(orDefault(executionConfiguration));
     }
 
     @Bean
@@ -109,10 +161,34 @@ public class ImportCqrsInjectionConfiguration {
             final CommandLoggingRunner commandLoggingRunner, final CommandProfilingRunner commandProfilingRunner,
             final CommandThrottlingRunner commandThrottlingRunner, final CommandTraceRunner commandTraceRunner,
             final CommandValidatingRunner commandValidatingRunner,
-            final Optional<CommandRunningWorkflowConfigurer> configurer, final EventThrowerRunner eventThrowerRunner) {
+            final Optional<CommandRunningWorkflowConfigurer> configurer, final EventThrowerRunner eventThrowerRunner,
+            final MonitorDiagnosticRunner monitorDiagnosticRunner, final CommandTimeoutRunner commandTimeoutRunner,
+            final SingleFlightRunner singleFlightRunner, final CommandCacheRunner commandCacheRunner,
+            final AdaptiveConcurrencyRunner adaptiveConcurrencyRunner,
+            final CircuitBreakerRunner circuitBreakerRunner, final RetryRunner retryRunner) {
         return new CommandRunnerWorkflowService(defaultExceptionHandlerRunner, commandLoggingRunner,
-                commandProfilingRunner, commandThrottlingRunner, commandTraceRunner, commandValidatingRunner,
-                eventThrowerRunner, configurer);
+                commandProfilingRunner, commandThrottlingRunner, commandTimeoutRunner, commandTraceRunner,
+                commandValidatingRunner, eventThrowerRunner, monitorDiagnosticRunner, singleFlightRunner,
+                commandCacheRunner, adaptiveConcurrencyRunner, circuitBreakerRunner, retryRunner,
+                configurer);
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public RetryRunner retryRunner(final TimeoutScheduler timeoutScheduler) {
+        return new RetryRunner(timeoutScheduler);
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public SingleFlightRunner singleFlightRunner() {
+        return new SingleFlightRunner();
+    }
+
+    @Bean
+    @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
+    public TimeoutScheduler timeoutScheduler() {
+        return new TimeoutScheduler();
     }
 
     @Bean
@@ -124,14 +200,30 @@ public class ImportCqrsInjectionConfiguration {
 
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
     @Bean
-    public ObjectValidation objectValidation(final Validator _validator) {
+    public ObjectValidation objectValidation(final Validator _validator,
+                                             final Optional<ExecutionConfiguration> executionConfiguration) {
+        // The lazy interpolation of the messages needs the factory of the validator
+        if (_validator instanceof ValidatorFactory) {
+            return new ObjectValidation((ValidatorFactory) _validator,
+                    orDefault(executionConfiguration).getMessageInterpolation());
+        }
         return new ObjectValidation(_validator);
     }
 
     @Bean
     @Scope(value = ConfigurableListableBeanFactory.SCOPE_SINGLETON)
     public SpringGate springGate(final CommandExecutorServiceImpl commandExecutorServiceImpl,
-                                 final EventBusService eventBusService, final Optional<SpringGateFilters> springFilter) {
-        return new SpringGate(commandExecutorServiceImpl, eventBusService, springFilter);
+                                 final EventBusService eventBusService, final Optional<SpringGateFilters> springFilter,
+                                 final Optional<ExecutionConfiguration> executionConfiguration,
+                                 final CommandCacheRunner commandCacheRunner) {
+        // The caches are invalidated before the event bus delivers the events
+        return new SpringGate(commandExecutorServiceImpl,
+                new CacheInvalidatingEventBusService(commandCacheRunner, eventBusService), springFilter,
+                orDefault(executionConfiguration));
+    }
+
+    private static ExecutionConfiguration orDefault(final Optional<ExecutionConfiguration> executionConfiguration) {
+        // The configurations written before the execution configuration do not declare it
+        return executionConfiguration.orElseGet(DefaultExecutionConfiguration::new);
     }
 }
@@ -11,37 +11,51 @@
 package com.byoskill.spring.cqrs.gate.conf;
 
 import com.byoskill.spring.cqrs.api.CqrsConfiguration;
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
 import com.byoskill.spring.cqrs.api.LoggingConfiguration;
-import com.byoskill.spring.cqrs.api.ThrottlingInterface;
 import com.byoskill.spring.cqrs.api.TraceConfiguration;
 import com.byoskill.spring.cqrs.gate.impl.CqrsUncaughtExceptionhandler;
+import com.byoskill.spring.cqrs.utils.concurrent.CommandExecutors;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
-import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class ImportDefaultCqrsConfiguration implements CqrsConfiguration {
 
+    private final TimeoutScheduler timeoutScheduler;
+
     public ImportDefaultCqrsConfiguration() {
+        this(null);
+    }
 
+    /**
+     * Instantiates the default configuration sharing the scheduler of the command
+     * deadlines with the rate limiters.
+     *
+     * @param timeoutScheduler the timeout scheduler, null to let the rate
+     *                         limiters create their own
+     */
+    @Autowired
+    public ImportDefaultCqrsConfiguration(final TimeoutScheduler timeoutScheduler) {
+        this.timeoutScheduler = timeoutScheduler;
     }
 
     @Bean
     @Override
-    public ForkJoinPool getForkJoinPool() {
-        final ForkJoinWorkerThreadFactory factory = pool -> {
-            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
-            worker.setName("cqrs-command-" + worker.getPoolIndex());
-            return worker;
-        };
-
-        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), factory,
-                uncaughtExceptionhandler(), true);
+    public ExecutorService getCommandExecutor() {
+        return CommandExecutors.newForkJoinPool(uncaughtExceptionhandler());
+    }
 
+    @Bean
+    @Override
+    public ExecutionConfiguration getExecutionConfiguration() {
+        return new DefaultExecutionConfiguration();
     }
 
     @Bean
@@ -53,8 +67,11 @@ public class ImportDefaultCqrsConfiguration implements CqrsConfiguration {
 
     @Bean
     @Override
-    public ThrottlingInterface getThrottlingInterface() {
-        return new DefaultThrottlingInterface();
+    public RateLimiterRegistry getThrottlingInterface() {
+        if (timeoutScheduler == null) {
+            return new RateLimiterRegistry(getCommandExecutor());
+        }
+        return new RateLimiterRegistry(getCommandExecutor(), timeoutScheduler);
     }
 
     @Bean
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.conf;
+
+import com.byoskill.spring.cqrs.api.RateLimit;
+import com.byoskill.spring.cqrs.api.ThrottlingInterface;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import com.byoskill.spring.cqrs.utils.concurrent.TokenBucket;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class RateLimiterRegistry grants the permits of the
+ * {@link com.byoskill.spring.cqrs.annotations.Throttle} annotations with a
+ * token bucket per name.
+ * <p>
+ * The names without a registered rate limit use the default rate limit, if
+ * any, otherwise they are not limited.
+ * <p>
+ * The asynchronous permits do not hold a thread while waiting : the stage is
+ * completed by a timer, on the given executor.
+ */
+public class RateLimiterRegistry implements ThrottlingInterface {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiterRegistry.class);
+
+    private volatile RateLimit defaultRateLimit;
+
+    private final Executor executor;
+
+    private final Map<String, TokenBucket> rateLimiters = new ConcurrentHashMap<>();
+
+    private final TimeoutScheduler scheduler;
+
+    private final boolean schedulerOwned;
+
+    private final Map<String, Boolean> unlimited = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new rate limiter registry, the asynchronous permits are
+     * granted on the common pool.
+     */
+    public RateLimiterRegistry() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Instantiates a new rate limiter registry.
+     *
+     * @param executor the executor completing the asynchronous permits
+     */
+    public RateLimiterRegistry(final Executor executor) {
+        this(executor, new TimeoutScheduler(), true);
+    }
+
+    /**
+     * Instantiates a new rate limiter registry sharing a scheduler, which is not
+     * stopped by {@link #shutdown()}.
+     *
+     * @param executor  the executor completing the asynchronous permits
+     * @param scheduler the scheduler of the waits
+     */
+    public RateLimiterRegistry(final Executor executor, final TimeoutScheduler scheduler) {
+        this(executor, scheduler, false);
+    }
+
+    private RateLimiterRegistry(final Executor executor, final TimeoutScheduler scheduler,
+                                final boolean schedulerOwned) {
+        Validate.notNull(executor);
+        Validate.notNull(scheduler);
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.schedulerOwned = schedulerOwned;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.byoskill.spring.cqrs.api.ThrottlingInterface#acquirePermit(java.lang.
+     * String)
+     */
+    @Override
+    public void acquirePermit(final String name) {
+        final TokenBucket rateLimiter = getRateLimiter(name);
+        if (rateLimiter != null) {
+            rateLimiter.acquire();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.api.ThrottlingInterface#acquirePermitAsync(java.lang.
+     * String)
+     */
+    @Override
+    public CompletionStage<Void> acquirePermitAsync(final String name) {
+        return reserveAsync(name, Long.MAX_VALUE).thenApply(granted -> null);
+    }
+
+    /**
+     * Gets the default rate limit.
+     *
+     * @return the default rate limit, null if the unknown names are not limited
+     */
+    public RateLimit getDefaultRateLimit() {
+        return defaultRateLimit;
+    }
+
+    /**
+     * Gets the rate limiters and their counters.
+     *
+     * @return the rate limiters per name
+     */
+    public Map<String, TokenBucket> getRateLimiters() {
+        return Collections.unmodifiableMap(rateLimiters);
+    }
+
+    /**
+     * Registers the rate limit of a name, replacing the previous one.
+     *
+     * @param name      the name used by the @Throttle annotations
+     * @param rateLimit the rate limit
+     * @return the rate limiter
+     */
+    public TokenBucket register(final String name, final RateLimit rateLimit) {
+        Validate.notNull(name);
+        Validate.notNull(rateLimit);
+        final TokenBucket rateLimiter = new TokenBucket(name, rateLimit);
+        rateLimiters.put(name, rateLimiter);
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the rate limit of the names without a registered rate limit.
+     *
+     * @param defaultRateLimit the new default rate limit, null to not limit them
+     */
+    public void setDefaultRateLimit(final RateLimit defaultRateLimit) {
+        this.defaultRateLimit = defaultRateLimit;
+    }
+
+    /**
+     * Stops the scheduler of the waits, unless it is shared.
+     */
+    public void shutdown() {
+        if (schedulerOwned) {
+            scheduler.shutdown();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.api.ThrottlingInterface#tryAcquirePermit(java.lang.
+     * String, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean tryAcquirePermit(final String name, final long timeout, final TimeUnit unit) {
+        final TokenBucket rateLimiter = getRateLimiter(name);
+        return rateLimiter == null || rateLimiter.tryAcquire(timeout, unit);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.byoskill.spring.cqrs.api.ThrottlingInterface#tryAcquirePermitAsync(java.
+     * lang.String, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public CompletionStage<Boolean> tryAcquirePermitAsync(final String name, final long timeout,
+                                                          final TimeUnit unit) {
+        return reserveAsync(name, unit.toNanos(timeout));
+    }
+
+    private TokenBucket getRateLimiter(final String name) {
+        final TokenBucket rateLimiter = rateLimiters.get(name);
+        if (rateLimiter != null) {
+            return rateLimiter;
+        }
+        final RateLimit rateLimit = defaultRateLimit;
+        if (rateLimit != null) {
+            return rateLimiters.computeIfAbsent(name, key -> new TokenBucket(key, rateLimit));
+        }
+        if (unlimited.putIfAbsent(name, Boolean.TRUE) == null) {
+            LOGGER.warn("No rate limit registered for @Throttle(\"{}\"), the commands are not limited", name);
+        }
+        return null;
+    }
+
+    private CompletableFuture<Boolean> reserveAsync(final String name, final long maxWait) {
+        final TokenBucket rateLimiter = getRateLimiter(name);
+        final long wait = rateLimiter == null ? 0 : rateLimiter.reserve(maxWait);
+        if (wait <= 0) {
+            return CompletableFuture.completedFuture(wait == 0);
+        }
+        final CompletableFuture<Boolean> permit = new CompletableFuture<>();
+        scheduler.schedule(() -> grant(permit), TimeUnit.NANOSECONDS.toMillis(wait + 999_999L));
+        return permit;
+    }
+
+    private void grant(final CompletableFuture<Boolean> permit) {
+        try {
+            executor.execute(() -> permit.complete(Boolean.TRUE));
+        } catch (final RejectedExecutionException e) {
+            permit.completeExceptionally(new CommandRejectedException("The permit cannot be granted", e));
+        }
+    }
+}
@@ -12,28 +12,50 @@ package com.byoskill.spring.cqrs.gate.impl;
 
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
 import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.Executor;
 
 public class CommandExecutionContextImpl implements CommandExecutionContext {
     private final Object command;
+    private final CommandTypeDescriptor descriptor;
+    private final Executor executor;
     private final CommandServiceSpec handler;
 
     /**
      * Instantiates a new command execution context contains all references to the
      * command and its service.F
      *
-     * @param handler the command handler
-     * @param command the command
+     * @param handler    the command handler
+     * @param command    the command
+     * @param descriptor the descriptor of the command type
      */
-    public CommandExecutionContextImpl(final CommandServiceSpec handler, final Object command) {
+    public CommandExecutionContextImpl(final CommandServiceSpec handler, final Object command,
+                                       final CommandTypeDescriptor descriptor) {
+        this(handler, command, descriptor, Runnable::run);
+    }
+
+    /**
+     * Instantiates a new command execution context of a command running on an
+     * executor.
+     *
+     * @param handler    the command handler
+     * @param command    the command
+     * @param descriptor the descriptor of the command type
+     * @param executor   the executor running the command
+     */
+    public CommandExecutionContextImpl(final CommandServiceSpec handler, final Object command,
+                                       final CommandTypeDescriptor descriptor, final Executor executor) {
         this.handler = handler;
         this.command = command;
+        this.descriptor = descriptor;
+        this.executor = executor;
     }
 
     @Override
     public <A extends Annotation> A getAnnotation(final Class<A> annotationClass) {
-        return command.getClass().getAnnotation(annotationClass);
+        return descriptor.getAnnotation(annotationClass);
     }
 
     @Override
@@ -41,6 +63,16 @@ public class CommandExecutionContextImpl implements CommandExecutionContext {
         return impl.cast(command);
     }
 
+    @Override
+    public CommandTypeDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
     @Override
     public Object getRawCommand() {
         return command;
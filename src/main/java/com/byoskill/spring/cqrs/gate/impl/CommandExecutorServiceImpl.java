@@ -10,12 +10,23 @@
  */
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.annotations.CommandOptions;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.CommandBatch;
 import com.byoskill.spring.cqrs.api.CommandServiceProvider;
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
 import com.byoskill.spring.cqrs.api.LoggingConfiguration;
-import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
 import com.byoskill.spring.cqrs.executors.impl.BootstrapRunner;
 import com.byoskill.spring.cqrs.executors.impl.DefaultCommandRunner;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.gate.api.CommandTimeoutException;
+import com.byoskill.spring.cqrs.utils.concurrent.AdmissionExecutor;
+import com.byoskill.spring.cqrs.utils.concurrent.Bulkhead;
+import com.byoskill.spring.cqrs.utils.concurrent.CoDelController;
+import com.byoskill.spring.cqrs.utils.concurrent.KeyedSequentialExecutor;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
 import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
 import com.byoskill.spring.cqrs.workflow.impl.CommandRunnerWorkflow;
 import com.byoskill.spring.cqrs.workflow.impl.CommandRunnerWorkflowService;
@@ -25,10 +36,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * This class prepares the command to be executed. It can override the default
@@ -41,16 +61,32 @@ public class CommandExecutorServiceImpl {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutorServiceImpl.class);
 
+    private static final BootstrapRunner BOOTSTRAP = new BootstrapRunner();
+
+    private static final DefaultCommandRunner DEFAULT_COMMAND_RUNNER = new DefaultCommandRunner();
+
     private final LoggingConfiguration configuration;
 
     private final CommandServiceProvider handlersProvider;
 
     private final ObjectValidation objectValidation;
 
-    private final ForkJoinPool threadPool;
+    private final ExecutorService threadPool;
+
+    private final AdmissionExecutor admissionExecutor;
+
+    private final ExecutionConfiguration executionConfiguration;
+
+    private final TimeoutScheduler timeoutScheduler;
 
     private final CommandRunnerWorkflowService commandWorkflowService;
 
+    private final ConcurrentMap<Class<?>, CompiledCommand> compiledCommands = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    private final KeyedSequentialExecutor partitions = new KeyedSequentialExecutor();
+
     /**
      * Instantiates a new sequential command executor service.
      *
@@ -59,25 +95,36 @@ public class CommandExecutorServiceImpl {
      * @param objectValidation       the object validation
      * @param commandWorkflowService the command workflow service
      * @param threadPoolTaskExecutor the thread pool task executor
+     * @param executionConfiguration the execution configuration
+     * @param timeoutScheduler       the scheduler of the command deadlines
      */
     @Autowired
     public CommandExecutorServiceImpl(final LoggingConfiguration configuration,
                                       final CommandServiceProvider handlersProvider,
                                       final ObjectValidation objectValidation,
                                       final CommandRunnerWorkflowService commandWorkflowService,
-                                      @Qualifier("cqrs-executor") final ForkJoinPool threadPoolTaskExecutor) {
+                                      @Qualifier("cqrs-executor") final ExecutorService threadPoolTaskExecutor,
+                                      final ExecutionConfiguration executionConfiguration,
+                                      final TimeoutScheduler timeoutScheduler) {
         super();
         this.configuration = configuration;
         this.handlersProvider = handlersProvider;
         this.commandWorkflowService = commandWorkflowService;
         threadPool = threadPoolTaskExecutor;
         this.objectValidation = objectValidation;
+        this.timeoutScheduler = timeoutScheduler;
+        this.executionConfiguration = executionConfiguration;
+        admissionExecutor = new AdmissionExecutor("cqrs-executor", threadPoolTaskExecutor,
+                executionConfiguration.getMaxConcurrency(), executionConfiguration.getQueueCapacity(),
+                executionConfiguration.getOverflowPolicy(), executionConfiguration.getPriorityAging(),
+                newOverloadController(), timeoutScheduler);
 
     }
 
     @PreDestroy
     public void destroy() {
         LOGGER.warn("Closing CQRS Thread pool");
+        threadPool.shutdown();
         try {
             LOGGER.warn("Waiting 1 second for threads to stop");
             threadPool.awaitTermination(1, TimeUnit.SECONDS);
@@ -86,28 +133,227 @@ public class CommandExecutorServiceImpl {
         }
         final List<Runnable> list = threadPool.shutdownNow();
         LOGGER.warn("{} threads were still running", list.size());
+        for (final Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.shutdown();
+        }
+    }
+
+    /**
+     * Executes a command on the calling thread. The failures are reported as for
+     * the commands executed by the thread pool, wrapped into a
+     * {@link CompletionException}.
+     * <p>
+     * The commands partitioned by a key are executed by the thread pool, after
+     * the previous commands of the same key.
+     *
+     * @param <R>          the generic type
+     * @param command      the command
+     * @param expectedType the expected type
+     * @return the result of the command
+     */
+    public <R> R execute(final Object command, final Class<R> expectedType) {
+        final CommandServiceSpec<?, ?> handler = handlersProvider.getService(command);
+        LOGGER.debug("Executing the command {} with the expected type {}", command, expectedType);
+
+        final CompiledCommand compiledCommand = getCompiledCommand(command);
+        if (compiledCommand.getDescriptor().isCommandKeyed()) {
+            return run(command, expectedType).join();
+        }
+        final CommandExecutionContextImpl commandExecutionContext = new CommandExecutionContextImpl(handler, command,
+                compiledCommand.getDescriptor(), compiledCommand.getAdmissionExecutor().getDelegate());
+        try {
+            return (R) BOOTSTRAP.execute(commandExecutionContext, compiledCommand.getChain());
+        } catch (final RuntimeException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Gets the admission stage in front of the command executor, and its
+     * saturation counters.
+     *
+     * @return the admission executor
+     */
+    public AdmissionExecutor getAdmissionExecutor() {
+        return admissionExecutor;
+    }
+
+    /**
+     * Gets the bulkheads created for the command types declaring one, by name.
+     *
+     * @return the bulkheads
+     */
+    public Map<String, Bulkhead> getBulkheads() {
+        return Collections.unmodifiableMap(new HashMap<>(bulkheads));
+    }
+
+    /**
+     * Gets the mailboxes of the commands partitioned by a key.
+     *
+     * @return the partitions
+     */
+    public KeyedSequentialExecutor getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Checks if the handler of a command can handle several commands at once.
+     * The commands partitioned by a key are never batched, to keep their order.
+     *
+     * @param command the command
+     * @return true, if the handler is a {@link BatchCommandServiceSpec}
+     */
+    public boolean isBatchHandled(final Object command) {
+        final CommandTypeDescriptor descriptor = getCompiledCommand(command).getDescriptor();
+        return descriptor.isBatchHandler() && !descriptor.isCommandKeyed();
     }
 
     /**
-     * Executes a command in synchronous way.
+     * Executes asynchronously commands of the same type in one call to their
+     * {@link BatchCommandServiceSpec}. The runners are applied once for the whole
+     * batch.
+     *
+     * @param <R>          the generic type
+     * @param commands     the commands, all of the same type
+     * @param expectedType the expected type
+     * @return the results of the commands, in the same order
+     * @throws CommandRejectedException if the admission queue is full
+     */
+    public <R> CompletableFuture<List<R>> runBatch(final List<?> commands, final Class<R> expectedType) {
+        final Object first = commands.get(0);
+        final CommandServiceSpec<?, ?> handler = handlersProvider.getService(first);
+        LOGGER.debug("Lauching {} commands {} with the expected type {}", commands.size(), first.getClass(),
+                expectedType);
+
+        final CompiledCommand compiledCommand = getCompiledCommand(first);
+        final CommandExecutionContextImpl commandExecutionContext = new CommandExecutionContextImpl(handler,
+                new CommandBatch(first.getClass(), commands), compiledCommand.getDescriptor(),
+                compiledCommand.getAdmissionExecutor().getDelegate());
+        final Object batch = commandExecutionContext.getRawCommand();
+        return withTimeOut(compiledCommand, batch, compiledCommand.getAdmissionExecutor().supplyStage(batch,
+                getPriority(compiledCommand), null,
+                () -> (CompletionStage<List<R>>) (CompletionStage<?>) compiledCommand.getAsyncChain()
+                        .executeAsync(commandExecutionContext)));
+    }
+
+    /**
+     * Executes a command asynchronously, without deadline.
      *
      * @param <R>          the generic type
      * @param command      the command
      * @param expectedType the expected type
      * @return the result of the command
+     * @throws CommandRejectedException if the admission queue is full
      */
     public <R> CompletableFuture<R> run(final Object command, final Class<R> expectedType) {
+        return run(command, expectedType, null);
+    }
+
+    /**
+     * Executes a command asynchronously. The commands waiting for the executor
+     * are ordered by the priority of their options, then by deadline. The
+     * commands partitioned by a key start after the completion of the previous
+     * command of the same key.
+     *
+     * @param <R>          the generic type
+     * @param command      the command
+     * @param expectedType the expected type
+     * @param deadline     the time allowed to the command to start, null for none
+     * @return the result of the command
+     * @throws CommandRejectedException if the admission queue is full
+     */
+    public <R> CompletableFuture<R> run(final Object command, final Class<R> expectedType, final Duration deadline) {
         final CommandServiceSpec<?, ?> handler = handlersProvider.getService(command);
         LOGGER.debug("Lauching the command {} with the expected type {}", command, expectedType);
 
-        final DefaultCommandRunner defaultCommandRunner = new DefaultCommandRunner(handler);
-        final CommandRunnerWorkflow runnerWorkflow = commandWorkflowService.getRunnerWorkflow();
-        final CommandExecutionContextImpl commandExecutionContext = new CommandExecutionContextImpl(handler, command);
-        final CommandRunnerChain commandRunnerChain = runnerWorkflow.buildChain(defaultCommandRunner);
-        final BootstrapRunner bootstrap = new BootstrapRunner();
-        return CompletableFuture.supplyAsync(
-                () -> (R) bootstrap.execute(commandExecutionContext, commandRunnerChain),
-                threadPool);
+        final CompiledCommand compiledCommand = getCompiledCommand(command);
+        final CommandExecutionContextImpl commandExecutionContext = new CommandExecutionContextImpl(handler, command,
+                compiledCommand.getDescriptor(), compiledCommand.getAdmissionExecutor().getDelegate());
+        final Supplier<CompletableFuture<R>> submission = () -> compiledCommand.getAdmissionExecutor()
+                .supplyStage(command, getPriority(compiledCommand), deadline,
+                        () -> (CompletionStage<R>) compiledCommand.getAsyncChain().executeAsync(commandExecutionContext));
+        final CommandTypeDescriptor descriptor = compiledCommand.getDescriptor();
+        return withTimeOut(compiledCommand, command, descriptor.isCommandKeyed()
+                ? partitions.submit(descriptor.getCommandKey(command), submission)
+                : submission.get());
+    }
+
+    /**
+     * Gets the descriptor, the runner chain and the executor of the command type,
+     * they are compiled at the first execution of a command of this type.
+     *
+     * @param command the command
+     * @return the compiled command
+     */
+    private CompiledCommand getCompiledCommand(final Object command) {
+        final CompiledCommand compiledCommand = compiledCommands.get(command.getClass());
+        if (compiledCommand != null) {
+            return compiledCommand;
+        }
+        return compiledCommands.computeIfAbsent(command.getClass(), commandType -> {
+            final CommandTypeDescriptor descriptor = new CommandTypeDescriptor(commandType,
+                    handlersProvider.getServiceTargetClass(command));
+            LOGGER.debug("Compiling the runner chain of {}", descriptor);
+            final CommandRunnerWorkflow workflow = commandWorkflowService.getRunnerWorkflow();
+            return new CompiledCommand(descriptor, workflow.compile(descriptor, DEFAULT_COMMAND_RUNNER),
+                    workflow.compileAsync(descriptor, DEFAULT_COMMAND_RUNNER), resolveAdmissionExecutor(descriptor));
+        });
+    }
+
+    private int getPriority(final CompiledCommand compiledCommand) {
+        final CommandOptions options = compiledCommand.getDescriptor().getCommandOptions();
+        return options == null ? 0 : options.priority();
+    }
+
+    /**
+     * Fails the future of a command with a {@link CommandTimeoutException} when
+     * its time out expires, even if the handler ignores its interruption.
+     */
+    private <T> CompletableFuture<T> withTimeOut(final CompiledCommand compiledCommand, final Object command,
+                                                 final CompletableFuture<T> future) {
+        final CommandOptions options = compiledCommand.getDescriptor().getCommandOptions();
+        if (options == null || options.timeOut() <= 0) {
+            return future;
+        }
+        return timeoutScheduler.within(future, options.timeOut(),
+                () -> new CommandTimeoutException(command, options.timeOut()));
+    }
+
+    /**
+     * Creates the controller of the queue delays, null when the overload control
+     * is disabled.
+     */
+    private CoDelController newOverloadController() {
+        if (executionConfiguration.getQueueDelayTarget() <= 0) {
+            return null;
+        }
+        return new CoDelController(executionConfiguration.getQueueDelayTarget(),
+                executionConfiguration.getQueueDelayInterval());
+    }
+
+    /**
+     * Gets the executor of a command type : its bulkhead if it declares one,
+     * otherwise the shared command executor.
+     */
+    private AdmissionExecutor resolveAdmissionExecutor(final CommandTypeDescriptor descriptor) {
+        final CommandOptions options = descriptor.getCommandOptions();
+        if (options == null || options.bulkhead().isEmpty()) {
+            return admissionExecutor;
+        }
+        final Bulkhead bulkhead = bulkheads.computeIfAbsent(options.bulkhead(), name -> {
+            LOGGER.info("Creating the bulkhead {} with {} threads and a queue of {} commands", name,
+                    options.maxConcurrency(), options.queueCapacity());
+            return new Bulkhead(name, options.maxConcurrency(), options.queueCapacity(), options.overflowPolicy(),
+                    executionConfiguration.getPriorityAging(), newOverloadController(), timeoutScheduler);
+        });
+        final AdmissionExecutor bulkheadExecutor = bulkhead.getAdmissionExecutor();
+        if (bulkheadExecutor.getMaxConcurrency() != options.maxConcurrency()
+                || bulkheadExecutor.getQueueCapacity() != options.queueCapacity()
+                || bulkheadExecutor.getOverflowPolicy() != options.overflowPolicy()) {
+            LOGGER.warn("The options of {} differ from the bulkhead {} it shares, they are ignored",
+                    descriptor.getCommandType(), bulkhead);
+        }
+        return bulkheadExecutor;
     }
 
 }
\ No newline at end of file
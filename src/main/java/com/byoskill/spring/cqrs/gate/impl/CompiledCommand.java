@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.impl;
+
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.utils.concurrent.AdmissionExecutor;
+
+/**
+ * The Class CompiledCommand contains what is computed once per command type :
+ * its descriptor, its runner chains and the executor running it.
+ */
+class CompiledCommand {
+
+    private final AdmissionExecutor admissionExecutor;
+
+    private final AsyncCommandRunnerChain asyncChain;
+
+    private final CommandRunnerChain chain;
+
+    private final CommandTypeDescriptor descriptor;
+
+    /**
+     * Instantiates a new compiled command.
+     *
+     * @param descriptor        the descriptor
+     * @param chain             the chain
+     * @param asyncChain        the asynchronous chain
+     * @param admissionExecutor the executor of the command type
+     */
+    CompiledCommand(final CommandTypeDescriptor descriptor, final CommandRunnerChain chain,
+                    final AsyncCommandRunnerChain asyncChain, final AdmissionExecutor admissionExecutor) {
+        this.descriptor = descriptor;
+        this.chain = chain;
+        this.asyncChain = asyncChain;
+        this.admissionExecutor = admissionExecutor;
+    }
+
+    public AdmissionExecutor getAdmissionExecutor() {
+        return admissionExecutor;
+    }
+
+    public AsyncCommandRunnerChain getAsyncChain() {
+        return asyncChain;
+    }
+
+    public CommandRunnerChain getChain() {
+        return chain;
+    }
+
+    public CommandTypeDescriptor getDescriptor() {
+        return descriptor;
+    }
+}
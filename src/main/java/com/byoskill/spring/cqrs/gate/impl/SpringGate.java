@@ -10,6 +10,8 @@
  */
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.api.DispatchMode;
+import com.byoskill.spring.cqrs.api.ExecutionConfiguration;
 import com.byoskill.spring.cqrs.gate.api.EventBusService;
 import com.byoskill.spring.cqrs.gate.api.Gate;
 import com.byoskill.spring.cqrs.gate.api.InvalidCommandException;
@@ -18,12 +20,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintViolationException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * This class defines the gate where the commands are dispatched for execution.
@@ -37,6 +41,8 @@ public class SpringGate implements Gate {
     private final CommandExecutorServiceImpl commandExecutorServiceImpl;
     private final EventBusService eventBusService;
 
+    private final ExecutionConfiguration executionConfiguration;
+
     private final Optional<SpringGateFilters> springGateFilters;
 
     /**
@@ -44,14 +50,18 @@ public class SpringGate implements Gate {
      *
      * @param commandExecutorServiceImpl the command executor service
      * @param eventBusService            the event bus service
+     * @param springGateFilters          the optional command filters
+     * @param executionConfiguration     the execution configuration
      */
     @Autowired
     public SpringGate(final CommandExecutorServiceImpl commandExecutorServiceImpl,
-                      final EventBusService eventBusService, final Optional<SpringGateFilters> springGateFilters) {
+                      final EventBusService eventBusService, final Optional<SpringGateFilters> springGateFilters,
+                      final ExecutionConfiguration executionConfiguration) {
         super();
         this.commandExecutorServiceImpl = commandExecutorServiceImpl;
         this.eventBusService = eventBusService;
         this.springGateFilters = springGateFilters;
+        this.executionConfiguration = executionConfiguration;
     }
 
     /**
@@ -60,24 +70,55 @@ public class SpringGate implements Gate {
     @Override
     public <R> R dispatch(final Object _command) {
 
-        return (R) commandExecutorServiceImpl.run(filterCommand(_command), Object.class).join();
+        return (R) runSynchronously(filterCommand(_command), Object.class);
 
     }
 
     @Override
     public <R> R dispatch(final Object command, final Class<R> returnType) {
-        return returnType.cast(commandExecutorServiceImpl.run(filterCommand(command), returnType).join());
+        return returnType.cast(runSynchronously(filterCommand(command), returnType));
     }
 
+    /**
+     * Dispatches a list of commands asynchronously. The commands of the same type
+     * handled by a {@link com.byoskill.spring.cqrs.api.BatchCommandServiceSpec}
+     * are executed together, the results are returned in the order of the
+     * commands.
+     */
     @Override
     public <R> List<R> dispatchAll(final List<?> commands, final Class<R> expectedReturnType) {
 
-        final List<CompletableFuture<R>> futures = new ArrayList<>();
+        final Map<Class<?>, List<Integer>> positionsByType = new LinkedHashMap<>();
+        final List<Object> filteredCommands = new ArrayList<>(commands.size());
         for (final Object command : commands) {
-            futures.add(this.dispatchAsync(command, expectedReturnType));
+            final Object filteredCommand = filterCommand(command);
+            positionsByType.computeIfAbsent(filteredCommand.getClass(), type -> new ArrayList<>())
+                    .add(filteredCommands.size());
+            filteredCommands.add(filteredCommand);
+        }
+
+        final Object[] results = new Object[filteredCommands.size()];
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (final List<Integer> positions : positionsByType.values()) {
+            final Object first = filteredCommands.get(positions.get(0));
+            if (positions.size() > 1 && commandExecutorServiceImpl.isBatchHandled(first)) {
+                final List<Object> batch = new ArrayList<>(positions.size());
+                for (final Integer position : positions) {
+                    batch.add(filteredCommands.get(position));
+                }
+                futures.add(commandExecutorServiceImpl.runBatch(batch, expectedReturnType).thenAccept(batchResults -> {
+                    for (int i = 0; i < positions.size(); ++i) {
+                        results[positions.get(i)] = batchResults.get(i);
+                    }
+                }));
+            } else {
+                for (final Integer position : positions) {
+                    futures.add(commandExecutorServiceImpl.run(filteredCommands.get(position), expectedReturnType)
+                            .thenAccept(result -> results[position] = result));
+                }
+            }
         }
-        final CompletableFuture<R>[] array = futures.toArray(new CompletableFuture[0]);
-        CompletableFuture.allOf(array).whenComplete((aVoid, thr) -> {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((aVoid, thr) -> {
             if (thr == null) {
                 LOGGER.debug("Execution of the tasks executed with success");
             } else {
@@ -85,7 +126,11 @@ public class SpringGate implements Gate {
             }
         }).join();
 
-        return futures.stream().map(future -> future.join()).collect(Collectors.toList());
+        final List<R> resultList = new ArrayList<>(results.length);
+        for (final Object result : results) {
+            resultList.add((R) result);
+        }
+        return resultList;
 
     }
 
@@ -111,6 +156,18 @@ public class SpringGate implements Gate {
         return commandExecutorServiceImpl.run(filterCommand(command), expectedReturnType);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.byoskill.spring.cqrs.gate.api.Gate#dispatchAsync(java.lang.Object,
+     * java.lang.Class, java.time.Duration)
+     */
+    @Override
+    public <R> CompletableFuture<R> dispatchAsync(final Object command, final Class<R> expectedReturnType,
+                                                  final Duration deadline) {
+        return commandExecutorServiceImpl.run(filterCommand(command), expectedReturnType, deadline);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -122,6 +179,13 @@ public class SpringGate implements Gate {
         eventBusService.publishEvent(_event);
     }
 
+    private <R> R runSynchronously(final Object command, final Class<R> expectedType) {
+        if (executionConfiguration.getDispatchMode() == DispatchMode.CALLER_THREAD) {
+            return commandExecutorServiceImpl.execute(command, expectedType);
+        }
+        return commandExecutorServiceImpl.run(command, expectedType).join();
+    }
+
     private Object filterCommand(final Object _command) {
         if (springGateFilters.isPresent()) {
             final Optional<Object> filterCommand = springGateFilters.get().filterCommand(_command);
@@ -10,6 +10,8 @@
  */
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.api.AsyncCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
 import com.byoskill.spring.cqrs.api.CommandServiceProvider;
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
 import com.byoskill.spring.cqrs.gate.api.CommandHandlerNotFoundException;
@@ -17,39 +19,92 @@ import com.byoskill.spring.cqrs.gate.api.CqrsException;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class retrieves the appropriate {@link CommandServiceSpec} based on the
  * type of the command.
+ * <p>
+ * Once the application context is refreshed, the handlers are resolved once
+ * and stored in a dispatch table keyed by the command class. Singleton handlers
+ * are then served without going back to the bean factory.
  *
  * @author sleroy
  */
-public class SpringHandlersProvider implements CommandServiceProvider {
+public class SpringHandlersProvider implements CommandServiceProvider, ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * The Class DispatchTable resolves the handler of a command class only once
+     * and caches it in the command class itself.
+     */
+    private final class DispatchTable extends ClassValue<HandlerBinding> {
+
+        @Override
+        protected HandlerBinding computeValue(final Class<?> commandType) {
+            final HandlerBinding binding = resolve(commandType, true);
+            return binding == null ? HandlerBinding.MISSING : binding;
+        }
+    }
+
+    /**
+     * The Class HandlerBinding contains the resolved handler of a command type.
+     */
+    private static final class HandlerBinding {
+
+        private static final HandlerBinding MISSING = new HandlerBinding(null, null, null);
+
+        private final String beanName;
+
+        private final CommandServiceSpec<?, ?> service;
+
+        private final Class<?> targetClass;
+
+        HandlerBinding(final String beanName, final CommandServiceSpec<?, ?> service, final Class<?> targetClass) {
+            this.beanName = beanName;
+            this.service = service;
+            this.targetClass = targetClass;
+        }
+    }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SpringHandlersProvider.class);
 
-    private static ParameterizedType findByRawType(final Type[] genericInterfaces, final Class<?> expectedRawType) {
+    private static ParameterizedType findByRawType(final Type[] genericInterfaces, final Class<?>... expectedRawTypes) {
         for (final Type type : genericInterfaces) {
             if (type instanceof ParameterizedType) {
                 final ParameterizedType parametrized = (ParameterizedType) type;
-                if (expectedRawType.equals(parametrized.getRawType())) {
-                    return parametrized;
+                for (final Class<?> expectedRawType : expectedRawTypes) {
+                    if (expectedRawType.equals(parametrized.getRawType())) {
+                        return parametrized;
+                    }
                 }
             }
         }
         throw new CqrsException("Invalid command handler definition, cannot retrieve the type of command handled");
     }
 
+    private static CommandServiceSpec<?, ?> toCommandService(final Object bean) {
+        Validate.notNull(bean);
+        if (bean instanceof CommandServiceSpec) {
+            return (CommandServiceSpec<?, ?>) bean;
+        }
+        throw new UnsupportedOperationException("Unsupported type of command service " + bean);
+    }
+
     private final ConfigurableListableBeanFactory beanFactory;
 
-    private final Map<Class<?>, String> handlers = new HashMap<>();
+    private final Map<Class<?>, String> handlers = new ConcurrentHashMap<>();
+
+    private volatile DispatchTable dispatchTable;
 
     /**
      * Instantiates a new spring handlers provider.
@@ -68,25 +123,54 @@ public class SpringHandlersProvider implements CommandServiceProvider {
      * @see com.byoskill.spring.cqrs.api.HandlersProvider#getHandler(java.lang.
      * Object)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public CommandServiceSpec<?, ?> getService(final Object command) {
-        final String beanName = handlers.get(command.getClass());
-        if (beanName == null) {
-            throw new CommandHandlerNotFoundException(
-                    "command handler not found. Command class is " + command.getClass());
+        final HandlerBinding binding = getBinding(command);
+        if (binding.service != null) {
+            return binding.service;
         }
-        final Object bean = beanFactory.getBean(beanName);
-        Validate.notNull(bean);
-        if (bean instanceof CommandServiceSpec) {
-            return (CommandServiceSpec) bean;
-        }
-        throw new UnsupportedOperationException("Unsupported type of command service " + bean);
+        return toCommandService(beanFactory.getBean(binding.beanName));
+    }
+
+    @Override
+    public Class<?> getServiceTargetClass(final Object command) {
+        return getBinding(command).targetClass;
+    }
+
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        refreshDispatchTable();
     }
 
     @Override
     public void putCommand(final Object bean, final String beanName) {
         handlers.put(getCommandServiceType(bean), beanName);
+        if (dispatchTable != null) {
+            // A handler has been created after the refresh, previous lookups may be stale.
+            dispatchTable = new DispatchTable();
+        }
+    }
+
+    /**
+     * Builds the dispatch table and resolves every known handler.
+     */
+    public void refreshDispatchTable() {
+        final DispatchTable table = new DispatchTable();
+        for (final Class<?> commandType : handlers.keySet()) {
+            table.get(commandType);
+        }
+        dispatchTable = table;
+        LOGGER.info("CQRS dispatch table built with {} command handlers", handlers.size());
+    }
+
+    private HandlerBinding getBinding(final Object command) {
+        final DispatchTable table = dispatchTable;
+        final HandlerBinding binding = table != null ? table.get(command.getClass()) : resolve(command.getClass(), false);
+        if (binding == null || binding == HandlerBinding.MISSING) {
+            throw new CommandHandlerNotFoundException(
+                    "command handler not found. Command class is " + command.getClass());
+        }
+        return binding;
     }
 
     /**
@@ -97,9 +181,23 @@ public class SpringHandlersProvider implements CommandServiceProvider {
      */
     private Class<?> getCommandServiceType(final Object bean) {
         Validate.notNull(bean);
-        final Type[] genericInterfaces = bean.getClass().getGenericInterfaces();
-        final ParameterizedType type = findByRawType(genericInterfaces, CommandServiceSpec.class);
+        final Type[] genericInterfaces = AopProxyUtils.ultimateTargetClass(bean).getGenericInterfaces();
+        final ParameterizedType type = findByRawType(genericInterfaces, CommandServiceSpec.class,
+                BatchCommandServiceSpec.class, AsyncCommandServiceSpec.class);
         return (Class<?>) type.getActualTypeArguments()[0];
     }
 
+    private HandlerBinding resolve(final Class<?> commandType, final boolean keepSingleton) {
+        final String beanName = handlers.get(commandType);
+        if (beanName == null) {
+            return null;
+        }
+        if (keepSingleton && beanFactory.isSingleton(beanName)) {
+            final CommandServiceSpec<?, ?> service = toCommandService(beanFactory.getBean(beanName));
+            return new HandlerBinding(beanName, service, AopProxyUtils.ultimateTargetClass(service));
+        }
+        final Class<?> beanType = beanFactory.getType(beanName);
+        return new HandlerBinding(beanName, null, beanType == null ? null : ClassUtils.getUserClass(beanType));
+    }
+
 }
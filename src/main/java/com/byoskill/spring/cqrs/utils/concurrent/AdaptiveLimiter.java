@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The Class AdaptiveLimiter limits the number of tasks in flight with a limit
+ * learnt from their round trip time, with a gradient algorithm.
+ * <p>
+ * Two moving averages of the round trip time are kept : a long one, the round
+ * trip time without load, and a short one. The limit is multiplied by their
+ * ratio (the gradient, between 0.5 and 1) when the latency increases, and
+ * grows by its square root otherwise. The limit only grows when at least half
+ * of it is used.
+ * <p>
+ * The tasks over the limit wait in a bounded queue, without holding a thread,
+ * and are started on their executor when a task completes. The tasks over the
+ * queue capacity are rejected with a {@link CommandRejectedException}. The
+ * rejected tasks, failing fast, do not sample the round trip time.
+ */
+public class AdaptiveLimiter {
+
+    private static final double LONG_WINDOW = 100;
+
+    private static final double SHORT_WINDOW = 5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double TOLERANCE = 1.5;
+
+    private int inFlight;
+
+    private volatile double limit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double longRtt;
+
+    private final int maxLimit;
+
+    private final int minLimit;
+
+    private final int queueCapacity;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private double shortRtt;
+
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+    /**
+     * Instantiates a new adaptive limiter.
+     *
+     * @param initialLimit  the initial limit
+     * @param maxLimit      the maximum limit
+     * @param queueCapacity the maximum number of waiting tasks
+     */
+    public AdaptiveLimiter(final int initialLimit, final int maxLimit, final int queueCapacity) {
+        minLimit = 1;
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.queueCapacity = queueCapacity;
+        limit = Math.max(minLimit, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * Gets the number of tasks in flight.
+     *
+     * @return the in flight count
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of waiting tasks.
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of rejected tasks.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the recent round trip time in microseconds.
+     *
+     * @return the round trip time
+     */
+    public long getRtt() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMicros((long) shortRtt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the round trip time without load in microseconds.
+     *
+     * @return the round trip time without load
+     */
+    public long getRttNoLoad() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMicros((long) longRtt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a task when the limit allows it. A waiting task is started by the
+     * thread completing the previous task.
+     *
+     * @param <T>  the result type
+     * @param task the task
+     * @return the result of the task
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<? extends CompletionStage<T>> task) {
+        return submit(task, Runnable::run);
+    }
+
+    /**
+     * Starts a task when the limit allows it.
+     *
+     * @param <T>      the result type
+     * @param task     the task
+     * @param executor the executor starting the task when it had to wait
+     * @return the result of the task
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<? extends CompletionStage<T>> task,
+                                          final Executor executor) {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                if (waiting.size() >= queueCapacity) {
+                    rejectedCount.incrementAndGet();
+                    return CompletionStages.failed(new CommandRejectedException(
+                            "Concurrency limit of " + (int) limit + " reached, " + waiting.size() + " tasks waiting"));
+                }
+                final CompletableFuture<T> result = new CompletableFuture<>();
+                final Runnable starter = () -> start(task).whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(CompletionStages.unwrap(failure));
+                    } else {
+                        result.complete(value);
+                    }
+                });
+                waiting.add(() -> {
+                    try {
+                        executor.execute(starter);
+                    } catch (final RejectedExecutionException e) {
+                        release(0, 0, false);
+                        result.completeExceptionally(new CommandRejectedException("The task cannot be started", e));
+                    }
+                });
+                return result;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        return start(task);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimiter [limit=" + getLimit() + ", inFlight=" + getInFlight() + ", queueSize="
+                + getQueueSize() + ", rtt=" + getRtt() + ", rttNoLoad=" + getRttNoLoad() + ", rejectedCount="
+                + rejectedCount + "]";
+    }
+
+    private void release(final long rtt, final int startInFlight, final boolean sampled) {
+        final List<Runnable> started = new ArrayList<>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (sampled) {
+                sample(rtt, startInFlight);
+            }
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                inFlight++;
+                started.add(waiting.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+        started.forEach(Runnable::run);
+    }
+
+    private void sample(final long measured, final int startInFlight) {
+        final long rtt = Math.max(1, measured);
+        if (longRtt == 0) {
+            longRtt = rtt;
+            shortRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+            if (longRtt > 2 * shortRtt) {
+                // The latency dropped durably, forget the old round trip times faster.
+                longRtt = 0.95 * longRtt;
+            }
+        }
+        final double current = limit;
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        if (gradient == 1.0 && startInFlight < current / 2) {
+            // The tasks do not use the limit, it does not need to grow.
+            return;
+        }
+        final double target = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    private <T> CompletableFuture<T> start(final Supplier<? extends CompletionStage<T>> task) {
+        final long start = System.nanoTime();
+        final int startInFlight = getInFlight();
+        CompletionStage<T> stage;
+        try {
+            stage = task.get();
+        } catch (final RuntimeException e) {
+            stage = CompletionStages.failed(e);
+        }
+        return stage.toCompletableFuture().whenComplete((value, failure) -> release(System.nanoTime() - start,
+                startInFlight, !(CompletionStages.unwrap(failure) instanceof CommandRejectedException)));
+    }
+}
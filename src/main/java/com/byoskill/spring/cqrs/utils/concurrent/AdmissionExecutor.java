@@ -0,0 +1,655 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.api.OverflowPolicy;
+import com.byoskill.spring.cqrs.gate.api.CommandOverloadedException;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang3.Validate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The Class AdmissionExecutor is a bounded admission stage in front of an
+ * executor. At most <code>maxConcurrency</code> tasks are submitted to the
+ * executor, the next ones wait in a queue holding at most
+ * <code>queueCapacity</code> tasks. When the queue is full, the
+ * {@link OverflowPolicy} decides of the fate of the new task.
+ * <p>
+ * The queued tasks are ordered by priority, then by deadline. Each task has a
+ * virtual deadline : its deadline, or its submission time plus the priority
+ * aging when it has none, minus its priority times the priority aging. The
+ * task with the earliest virtual deadline is executed first, a task waiting
+ * for one priority aging more than another task is executed as if it had one
+ * more priority. A task whose deadline has passed when it leaves the queue is
+ * not executed. With a {@link TimeoutScheduler}, a task whose deadline expires
+ * while it waits is removed from the queue and fails at its deadline.
+ * <p>
+ * With a {@link CoDelController}, the tasks are stamped when they enter the
+ * queue and the sojourn time is checked when a thread starts them, before the
+ * command workflow : the tasks which waited too long in an overloaded executor
+ * fail with a {@link CommandOverloadedException}.
+ * <p>
+ * The counters and the queue wait histograms of each priority are exposed to
+ * monitor the saturation of the executor.
+ */
+public class AdmissionExecutor {
+
+    /**
+     * A task and the future of its result.
+     *
+     * @param <T> the generic type
+     */
+    private final class Task<T> implements Runnable {
+
+        private final Object command;
+
+        private final long deadline;
+
+        /**
+         * The timer failing the task at its deadline while it waits, null when none
+         * is armed.
+         */
+        private volatile ScheduledFuture<?> expiration;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private final boolean hasDeadline;
+
+        private final int priority;
+
+        private final long sequence;
+
+        private final long submitted = System.nanoTime();
+
+        private final Supplier<? extends CompletionStage<T>> supplier;
+
+        private final long virtualDeadline;
+
+        Task(final Object command, final int priority, final Duration deadline,
+             final Supplier<? extends CompletionStage<T>> supplier) {
+            this.command = command;
+            this.priority = priority;
+            this.supplier = supplier;
+            hasDeadline = deadline != null;
+            this.deadline = hasDeadline ? submitted + deadline.toNanos() : submitted + priorityAging;
+            virtualDeadline = this.deadline - priority * priorityAging;
+            sequence = sequenceNumber.getAndIncrement();
+        }
+
+        /**
+         * Starts the task.
+         *
+         * @return the stage of the execution, completed when the task no longer
+         * uses its slot
+         */
+        CompletionStage<T> execute() {
+            disarm();
+            final long started = System.nanoTime();
+            getQueueWaitHistogram(priority).recordValue(TimeUnit.NANOSECONDS.toMicros(started - submitted));
+            if (future.isDone()) {
+                // Timed out or dropped while waiting in the queue
+                return future;
+            }
+            if (overloadController != null && overloadController.shouldShed(started - submitted)) {
+                shedCount.incrementAndGet();
+                future.completeExceptionally(new CommandOverloadedException("The command waited "
+                        + TimeUnit.NANOSECONDS.toMillis(started - submitted) + " ms in the overloaded queue " + name
+                        + ", the command has not been executed : " + command));
+                return future;
+            }
+            if (hasDeadline && started - deadline > 0) {
+                expire();
+                return future;
+            }
+            try {
+                return supplier.get();
+            } catch (final Throwable t) {
+                return CompletionStages.failed(t);
+            }
+        }
+
+        /**
+         * Cancels the timer of the deadline, if any.
+         */
+        void disarm() {
+            final ScheduledFuture<?> timer = expiration;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+
+        /**
+         * Fails the task whose deadline expired before it started.
+         */
+        void expire() {
+            expiredCount.incrementAndGet();
+            future.completeExceptionally(new CommandRejectedException("The deadline of the command expired in "
+                    + "the queue " + name + ", the command has not been executed : " + command));
+        }
+
+        /**
+         * Completes the future of the task with the outcome of its execution.
+         */
+        void forward(final T result, final Throwable failure) {
+            if (failure != null) {
+                future.completeExceptionally(CompletionStages.unwrap(failure));
+            } else {
+                future.complete(result);
+            }
+        }
+
+        @Override
+        public void run() {
+            final CompletionStage<T> execution;
+            try {
+                execution = execute();
+            } catch (final Throwable t) {
+                release();
+                throw t;
+            }
+            execution.whenComplete((result, failure) -> {
+                // The slot is free when the future completes
+                try {
+                    release();
+                } finally {
+                    forward(result, failure);
+                }
+            });
+        }
+    }
+
+    private final AtomicLong callerRunsCount = new AtomicLong();
+
+    private final Executor delegate;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final int maxConcurrency;
+
+    private final String name;
+
+    private final Condition notFull = lock.newCondition();
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final CoDelController overloadController;
+
+    private final long priorityAging;
+
+    private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+            Comparator.comparing((Task<?> task) -> task.virtualDeadline, AdmissionExecutor::compareNanoTimes)
+                    .thenComparingLong(task -> task.sequence));
+
+    private final int queueCapacity;
+
+    private final ConcurrentMap<Integer, Histogram> queueWaitHistograms = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * The number of tasks submitted to the executor, guarded by the lock.
+     */
+    private int running;
+
+    private final AtomicLong sequenceNumber = new AtomicLong();
+
+    private final AtomicLong shedCount = new AtomicLong();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final TimeoutScheduler timeoutScheduler;
+
+    /**
+     * Instantiates a new admission executor with a priority aging of one second.
+     *
+     * @param name           the name, used in the messages
+     * @param delegate       the executor running the tasks
+     * @param maxConcurrency the maximum number of tasks submitted to the executor
+     * @param queueCapacity  the maximum number of waiting tasks
+     * @param overflowPolicy the overflow policy
+     */
+    public AdmissionExecutor(final String name, final Executor delegate, final int maxConcurrency,
+                             final int queueCapacity, final OverflowPolicy overflowPolicy) {
+        this(name, delegate, maxConcurrency, queueCapacity, overflowPolicy, 1_000);
+    }
+
+    /**
+     * Instantiates a new admission executor.
+     *
+     * @param name           the name, used in the messages
+     * @param delegate       the executor running the tasks
+     * @param maxConcurrency the maximum number of tasks submitted to the executor
+     * @param queueCapacity  the maximum number of waiting tasks
+     * @param overflowPolicy the overflow policy
+     * @param priorityAging  the waiting time in milliseconds worth one priority
+     */
+    public AdmissionExecutor(final String name, final Executor delegate, final int maxConcurrency,
+                             final int queueCapacity, final OverflowPolicy overflowPolicy, final long priorityAging) {
+        this(name, delegate, maxConcurrency, queueCapacity, overflowPolicy, priorityAging, null);
+    }
+
+    /**
+     * Instantiates a new admission executor shedding the tasks waiting too long.
+     *
+     * @param name               the name, used in the messages
+     * @param delegate           the executor running the tasks
+     * @param maxConcurrency     the maximum number of tasks submitted to the
+     *                           executor
+     * @param queueCapacity      the maximum number of waiting tasks
+     * @param overflowPolicy     the overflow policy
+     * @param priorityAging      the waiting time in milliseconds worth one
+     *                           priority
+     * @param overloadController the controller of the sojourn times, null to
+     *                           execute every task
+     */
+    public AdmissionExecutor(final String name, final Executor delegate, final int maxConcurrency,
+                             final int queueCapacity, final OverflowPolicy overflowPolicy, final long priorityAging,
+                             final CoDelController overloadController) {
+        this(name, delegate, maxConcurrency, queueCapacity, overflowPolicy, priorityAging, overloadController, null);
+    }
+
+    /**
+     * Instantiates a new admission executor failing the waiting tasks at their
+     * deadline.
+     *
+     * @param name               the name, used in the messages
+     * @param delegate           the executor running the tasks
+     * @param maxConcurrency     the maximum number of tasks submitted to the
+     *                           executor
+     * @param queueCapacity      the maximum number of waiting tasks
+     * @param overflowPolicy     the overflow policy
+     * @param priorityAging      the waiting time in milliseconds worth one
+     *                           priority
+     * @param overloadController the controller of the sojourn times, null to
+     *                           execute every task
+     * @param timeoutScheduler   the scheduler of the deadlines, null to check them
+     *                           only when the tasks leave the queue
+     */
+    public AdmissionExecutor(final String name, final Executor delegate, final int maxConcurrency,
+                             final int queueCapacity, final OverflowPolicy overflowPolicy, final long priorityAging,
+                             final CoDelController overloadController, final TimeoutScheduler timeoutScheduler) {
+        Validate.isTrue(maxConcurrency > 0, "maxConcurrency must be positive");
+        Validate.isTrue(queueCapacity >= 0, "queueCapacity must not be negative");
+        Validate.isTrue(priorityAging > 0, "priorityAging must be positive");
+        this.name = name;
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = Validate.notNull(overflowPolicy);
+        this.priorityAging = TimeUnit.MILLISECONDS.toNanos(priorityAging);
+        this.overloadController = overloadController;
+        this.timeoutScheduler = timeoutScheduler;
+    }
+
+    private static int compareNanoTimes(final long first, final long second) {
+        return Long.signum(first - second);
+    }
+
+    /**
+     * Gets the number of tasks submitted to the executor and not finished yet.
+     *
+     * @return the active count
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of tasks executed by the dispatching thread because the
+     * queue was full.
+     *
+     * @return the caller runs count
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    /**
+     * Gets the executor running the admitted tasks.
+     *
+     * @return the delegate executor
+     */
+    public Executor getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Gets the number of queued tasks dropped to make room for a newer task.
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets the number of queued tasks not executed because their deadline
+     * expired.
+     *
+     * @return the expired count
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Gets the max concurrency.
+     *
+     * @return the max concurrency
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the overflow policy.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets the queue capacity.
+     *
+     * @return the queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the number of tasks waiting in the queue.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a copy of the histograms of the time spent by the tasks between their
+     * submission and their execution, in microseconds, by priority.
+     *
+     * @return the queue wait histograms
+     */
+    public Map<Integer, Histogram> getQueueWaitHistograms() {
+        final Map<Integer, Histogram> histograms = new HashMap<>();
+        queueWaitHistograms.forEach((priority, histogram) -> histograms.put(priority, histogram.copy()));
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * Gets the number of tasks rejected because the queue was full.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the number of tasks shed because they waited too long in the queue of
+     * the overloaded executor.
+     *
+     * @return the shed count
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /**
+     * Gets the number of tasks received.
+     *
+     * @return the submitted count
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * Executes a task asynchronously with the default priority and no deadline.
+     *
+     * @param <T>      the generic type
+     * @param command  the command executed by the task
+     * @param supplier the task
+     * @return the future result of the task
+     * @throws CommandRejectedException if the task is rejected
+     * @see #supply(Object, int, Duration, Supplier)
+     */
+    public <T> CompletableFuture<T> supply(final Object command, final Supplier<T> supplier) {
+        return supply(command, 0, null, supplier);
+    }
+
+    /**
+     * Executes a task asynchronously, or according to the overflow policy when
+     * the queue is full.
+     *
+     * @param <T>      the generic type
+     * @param command  the command executed by the task
+     * @param priority the priority of the task, the highest first
+     * @param deadline the time allowed to the task to start, null for none
+     * @param supplier the task
+     * @return the future result of the task
+     * @throws CommandRejectedException if the task is rejected
+     */
+    public <T> CompletableFuture<T> supply(final Object command, final int priority, final Duration deadline,
+                                           final Supplier<T> supplier) {
+        return supplyStage(command, priority, deadline, () -> CompletableFuture.completedFuture(supplier.get()));
+    }
+
+    /**
+     * Executes an asynchronous task, or according to the overflow policy when the
+     * queue is full. The task keeps its slot until its stage completes.
+     *
+     * @param <T>      the generic type
+     * @param command  the command executed by the task
+     * @param priority the priority of the task, the highest first
+     * @param deadline the time allowed to the task to start, null for none
+     * @param supplier the task, starting the execution
+     * @return the future result of the task
+     * @throws CommandRejectedException if the task is rejected
+     */
+    public <T> CompletableFuture<T> supplyStage(final Object command, final int priority, final Duration deadline,
+                                                final Supplier<? extends CompletionStage<T>> supplier) {
+        final Task<T> task = new Task<>(command, priority, deadline, supplier);
+        submittedCount.incrementAndGet();
+        Task<?> droppedTask = null;
+        lock.lock();
+        try {
+            while (running >= maxConcurrency && queue.size() >= queueCapacity) {
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    awaitNotFull(command);
+                } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST && !queue.isEmpty()) {
+                    droppedTask = pollOldest();
+                    break;
+                } else if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                    callerRunsCount.incrementAndGet();
+                    lock.unlock();
+                    try {
+                        task.execute().whenComplete(task::forward);
+                        return task.future;
+                    } finally {
+                        lock.lock();
+                    }
+                } else {
+                    rejectedCount.incrementAndGet();
+                    throw new CommandRejectedException("The queue " + name + " is full (" + queueCapacity
+                            + " commands), the command has been rejected : " + command);
+                }
+            }
+            if (running >= maxConcurrency) {
+                queue.add(task);
+                arm(task);
+                return task.future;
+            }
+            ++running;
+        } finally {
+            lock.unlock();
+            if (droppedTask != null) {
+                droppedTask.disarm();
+                droppedCount.incrementAndGet();
+                droppedTask.future.completeExceptionally(new CommandRejectedException("The queue " + name
+                        + " is full, the command has been dropped : " + droppedTask.command));
+            }
+        }
+        if (!tryDispatch(task)) {
+            release();
+        }
+        return task.future;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionExecutor [name=" + name + ", maxConcurrency=" + maxConcurrency + ", queueCapacity="
+                + queueCapacity + ", overflowPolicy=" + overflowPolicy + ", activeCount=" + getActiveCount()
+                + ", queueDepth=" + getQueueDepth() + ", submittedCount=" + submittedCount + ", rejectedCount="
+                + rejectedCount + ", droppedCount=" + droppedCount + ", expiredCount=" + expiredCount
+                + ", shedCount=" + shedCount + ", callerRunsCount=" + callerRunsCount + "]";
+    }
+
+    /**
+     * Arms the timer failing a queued task at its deadline, guarded by the lock.
+     */
+    private void arm(final Task<?> task) {
+        if (!task.hasDeadline || timeoutScheduler == null) {
+            return;
+        }
+        final long delay = TimeUnit.NANOSECONDS.toMillis(task.deadline - System.nanoTime()) + 1;
+        try {
+            task.expiration = timeoutScheduler.schedule(() -> {
+                boolean removed;
+                lock.lock();
+                try {
+                    removed = queue.remove(task);
+                    if (removed) {
+                        notFull.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (removed) {
+                    task.expire();
+                }
+            }, Math.max(delay, 0));
+        } catch (final RejectedExecutionException e) {
+            // Stopped scheduler, the deadline is checked when the task leaves the queue
+        }
+    }
+
+    private void awaitNotFull(final Object command) {
+        try {
+            notFull.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            throw new CommandRejectedException("Interrupted while waiting for room in the queue " + name
+                    + ", the command has been rejected : " + command, e);
+        }
+    }
+
+    private Histogram getQueueWaitHistogram(final int priority) {
+        final Histogram histogram = queueWaitHistograms.get(priority);
+        if (histogram != null) {
+            return histogram;
+        }
+        return queueWaitHistograms.computeIfAbsent(priority, key -> new ConcurrentHistogram(3));
+    }
+
+    /**
+     * Removes the task submitted first from the queue, guarded by the lock.
+     */
+    private Task<?> pollOldest() {
+        Task<?> oldest = null;
+        for (final Task<?> task : queue) {
+            if (oldest == null || task.sequence < oldest.sequence) {
+                oldest = task;
+            }
+        }
+        queue.remove(oldest);
+        return oldest;
+    }
+
+    /**
+     * Releases the slot of a finished task : the slot is given to the next
+     * queued task if any.
+     */
+    private void release() {
+        Task<?> next;
+        do {
+            lock.lock();
+            try {
+                next = queue.poll();
+                if (next == null) {
+                    --running;
+                }
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        } while (next != null && !tryDispatch(next));
+    }
+
+    private boolean tryDispatch(final Task<?> task) {
+        try {
+            delegate.execute(task);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            task.future.completeExceptionally(new CommandRejectedException("The executor of " + name
+                    + " has rejected the command : " + task.command, e));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.api.OverflowPolicy;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Class Bulkhead is a pool of threads isolated from the other commands,
+ * with its own admission queue. A slow command type bound to a bulkhead cannot
+ * take the threads of the other command types.
+ */
+public class Bulkhead {
+
+    private final AdmissionExecutor admissionExecutor;
+
+    private final String name;
+
+    private final ThreadPoolExecutor threadPool;
+
+    /**
+     * Instantiates a new bulkhead. The threads are started on demand and stopped
+     * after one minute of inactivity.
+     *
+     * @param name           the name
+     * @param maxConcurrency the number of threads
+     * @param queueCapacity  the maximum number of waiting commands
+     * @param overflowPolicy the overflow policy
+     */
+    public Bulkhead(final String name, final int maxConcurrency, final int queueCapacity,
+                    final OverflowPolicy overflowPolicy) {
+        this(name, maxConcurrency, queueCapacity, overflowPolicy, null);
+    }
+
+    /**
+     * Instantiates a new bulkhead shedding the commands waiting too long. The
+     * threads are started on demand and stopped after one minute of inactivity.
+     *
+     * @param name               the name
+     * @param maxConcurrency     the number of threads
+     * @param queueCapacity      the maximum number of waiting commands
+     * @param overflowPolicy     the overflow policy
+     * @param overloadController the controller of the sojourn times, null to
+     *                           execute every command
+     */
+    public Bulkhead(final String name, final int maxConcurrency, final int queueCapacity,
+                    final OverflowPolicy overflowPolicy, final CoDelController overloadController) {
+        this(name, maxConcurrency, queueCapacity, overflowPolicy, 1_000, overloadController);
+    }
+
+    /**
+     * Instantiates a new bulkhead shedding the commands waiting too long. The
+     * threads are started on demand and stopped after one minute of inactivity.
+     *
+     * @param name               the name
+     * @param maxConcurrency     the number of threads
+     * @param queueCapacity      the maximum number of waiting commands
+     * @param overflowPolicy     the overflow policy
+     * @param priorityAging      the waiting time in milliseconds worth one
+     *                           priority level
+     * @param overloadController the controller of the sojourn times, null to
+     *                           execute every command
+     */
+    public Bulkhead(final String name, final int maxConcurrency, final int queueCapacity,
+                    final OverflowPolicy overflowPolicy, final long priorityAging,
+                    final CoDelController overloadController) {
+        this(name, maxConcurrency, queueCapacity, overflowPolicy, priorityAging, overloadController, null);
+    }
+
+    /**
+     * Instantiates a new bulkhead failing the waiting commands at their deadline.
+     * The threads are started on demand and stopped after one minute of
+     * inactivity.
+     *
+     * @param name               the name
+     * @param maxConcurrency     the number of threads
+     * @param queueCapacity      the maximum number of waiting commands
+     * @param overflowPolicy     the overflow policy
+     * @param priorityAging      the waiting time in milliseconds worth one
+     *                           priority level
+     * @param overloadController the controller of the sojourn times, null to
+     *                           execute every command
+     * @param timeoutScheduler   the scheduler of the deadlines, null to check them
+     *                           only when the commands leave the queue
+     */
+    public Bulkhead(final String name, final int maxConcurrency, final int queueCapacity,
+                    final OverflowPolicy overflowPolicy, final long priorityAging,
+                    final CoDelController overloadController, final TimeoutScheduler timeoutScheduler) {
+        this.name = name;
+        final AtomicInteger counter = new AtomicInteger();
+        // The admission executor bounds the queue, the pool queue never holds more
+        // than maxConcurrency tasks.
+        threadPool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "cqrs-bulkhead-" + name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        threadPool.allowCoreThreadTimeOut(true);
+        admissionExecutor = new AdmissionExecutor("bulkhead " + name, threadPool, maxConcurrency, queueCapacity,
+                overflowPolicy, priorityAging, overloadController, timeoutScheduler);
+    }
+
+    /**
+     * Gets the admission stage of the bulkhead, and its saturation counters.
+     *
+     * @return the admission executor
+     */
+    public AdmissionExecutor getAdmissionExecutor() {
+        return admissionExecutor;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Stops the threads of the bulkhead.
+     */
+    public void shutdown() {
+        threadPool.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead [name=" + name + ", admissionExecutor=" + admissionExecutor + "]";
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class CoDelController detects a standing queue from the time spent by the
+ * tasks in the queue (sojourn time), in the manner of the controlled delay
+ * algorithm (CoDel).
+ * <p>
+ * The executor is overloaded when, during a whole interval, no task waited
+ * less than the target : the queue never drained. While overloaded, the tasks
+ * which waited more than the target are shed, otherwise only the tasks which
+ * waited more than the interval are shed. A burst is absorbed, a standing queue
+ * is drained of its oldest tasks, which the callers have probably given up.
+ */
+public class CoDelController {
+
+    private final long interval;
+
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong minSojourn = new AtomicLong(Long.MAX_VALUE);
+
+    private volatile boolean overloaded;
+
+    private final long target;
+
+    /**
+     * Instantiates a new CoDel controller.
+     *
+     * @param target   the acceptable sojourn time in milliseconds
+     * @param interval the interval in milliseconds during which the sojourn time
+     *                 must fall below the target
+     */
+    public CoDelController(final long target, final long interval) {
+        Validate.isTrue(target > 0, "target must be positive");
+        Validate.isTrue(interval >= target, "interval must not be shorter than the target");
+        this.target = TimeUnit.MILLISECONDS.toNanos(target);
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+    }
+
+    /**
+     * Checks if the executor was overloaded during the last interval.
+     *
+     * @return true, if overloaded
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Records the sojourn time of a task leaving the queue and decides if it is
+     * shed.
+     *
+     * @param sojourn the time spent in the queue, in nanoseconds
+     * @return true, if the task must not be executed
+     */
+    public boolean shouldShed(final long sojourn) {
+        final long now = System.nanoTime();
+        final long start = intervalStart.get();
+        if (now - start >= interval && intervalStart.compareAndSet(start, now)) {
+            final long min = minSojourn.getAndSet(Long.MAX_VALUE);
+            overloaded = min != Long.MAX_VALUE && min > target;
+        }
+        minSojourn.accumulateAndGet(sojourn, Math::min);
+        return sojourn > (overloaded ? target : interval);
+    }
+
+    @Override
+    public String toString() {
+        return "CoDelController [target=" + TimeUnit.NANOSECONDS.toMillis(target) + ", interval="
+                + TimeUnit.NANOSECONDS.toMillis(interval) + ", overloaded=" + overloaded + "]";
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory of the executors that can run the commands.
+ */
+public final class CommandExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutors.class);
+
+    private static final String THREAD_PREFIX = "cqrs-command-";
+
+    /**
+     * Creates a fork join pool sized to the number of processors. It suits the
+     * handlers that do not block.
+     *
+     * @param uncaughtExceptionHandler the uncaught exception handler
+     * @return the fork join pool
+     */
+    public static ForkJoinPool newForkJoinPool(final UncaughtExceptionHandler uncaughtExceptionHandler) {
+        final ForkJoinWorkerThreadFactory factory = pool -> {
+            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName(THREAD_PREFIX + worker.getPoolIndex());
+            return worker;
+        };
+
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), factory,
+                uncaughtExceptionHandler, true);
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each command. It
+     * suits the handlers blocking on I/O (JDBC, HTTP...), the number of commands
+     * in progress is not limited by a number of threads.
+     * <p>
+     * Virtual threads are available since Java 21. On older JVMs, a cached pool
+     * of platform threads is returned instead.
+     *
+     * @param uncaughtExceptionHandler the uncaught exception handler
+     * @return the executor service
+     */
+    public static ExecutorService newVirtualThreadPerCommandExecutor(
+            final UncaughtExceptionHandler uncaughtExceptionHandler) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX, 0L);
+            builder = builderClass.getMethod("uncaughtExceptionHandler", UncaughtExceptionHandler.class)
+                    .invoke(builder, uncaughtExceptionHandler);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (final ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not supported by this JVM, using a cached thread pool : {}",
+                    e.toString());
+            final AtomicLong counter = new AtomicLong();
+            return Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, THREAD_PREFIX + counter.getAndIncrement());
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+                return thread;
+            });
+        }
+    }
+
+    private CommandExecutors() {
+        // Factory class
+    }
+}
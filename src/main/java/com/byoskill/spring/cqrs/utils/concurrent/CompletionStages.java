@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * The Class CompletionStages contains the helpers bridging the synchronous and
+ * the asynchronous executions of the commands.
+ */
+public final class CompletionStages {
+
+    /**
+     * Returns a stage failed with a throwable.
+     *
+     * @param <T>     the generic type
+     * @param failure the failure
+     * @return the failed stage
+     */
+    public static <T> CompletableFuture<T> failed(final Throwable failure) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    /**
+     * Waits for the result of a stage. The failure of the stage is rethrown
+     * without the {@link CompletionException} wrapping it, when it is a runtime
+     * exception or an error.
+     *
+     * @param <T>   the generic type
+     * @param stage the stage
+     * @return the result
+     */
+    public static <T> T join(final CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (final CompletionException e) {
+            final Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a synchronous computation and returns its result, or its failure,
+     * as a completed stage.
+     *
+     * @param <T>      the generic type
+     * @param supplier the computation
+     * @return the completed stage
+     */
+    public static <T> CompletableFuture<T> supply(final Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (final Throwable t) {
+            return failed(t);
+        }
+    }
+
+    /**
+     * Removes the {@link CompletionException} and {@link ExecutionException}
+     * wrapping a failure.
+     *
+     * @param failure the failure
+     * @return the original failure
+     */
+    public static Throwable unwrap(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private CompletionStages() {
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class FailureRateWindow computes the failure rate of the last calls
+ * without lock : the outcomes are stored in a ring of atomic slots and the
+ * counters are updated with the difference between the replaced outcome and
+ * the new one.
+ */
+public class FailureRateWindow {
+
+    private static final int FAILURE = 2;
+
+    private static final int SUCCESS = 1;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicIntegerArray outcomes;
+
+    /**
+     * Instantiates a new failure rate window.
+     *
+     * @param size the number of calls kept
+     */
+    public FailureRateWindow(final int size) {
+        outcomes = new AtomicIntegerArray(Math.max(1, size));
+    }
+
+    /**
+     * Gets the number of calls in the window.
+     *
+     * @return the number of calls
+     */
+    public int getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Gets the failure rate in percent.
+     *
+     * @return the failure rate, 0 without calls
+     */
+    public float getFailureRate() {
+        final int total = calls.get();
+        return total == 0 ? 0 : Math.min(100f, failures.get() * 100f / total);
+    }
+
+    /**
+     * Records the outcome of a call, replacing the oldest one when the window is
+     * full.
+     *
+     * @param failure true if the call failed
+     */
+    public void record(final boolean failure) {
+        final int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+        final int previous = outcomes.getAndSet(slot, failure ? FAILURE : SUCCESS);
+        if (previous == 0) {
+            calls.incrementAndGet();
+        } else if (previous == FAILURE) {
+            failures.decrementAndGet();
+        }
+        if (failure) {
+            failures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FailureRateWindow [calls=" + calls + ", failures=" + failures + "]";
+    }
+}
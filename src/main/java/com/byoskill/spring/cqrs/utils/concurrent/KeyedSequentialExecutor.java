@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * The Class KeyedSequentialExecutor starts the tasks sharing the same key one
+ * at a time, in the submission order. The tasks of different keys are
+ * independent.
+ * <p>
+ * Each key is a mailbox holding only the future of its last task : a new task
+ * is started when the previous one completes, by the thread completing it. The
+ * mailbox is removed when its last task completes, an idle key costs nothing.
+ * <p>
+ * The mailbox holds an internal future completed by the execution of the task,
+ * the caller receives a copy : completing, cancelling or timing out the
+ * returned future does not start the next task before the execution ends.
+ */
+public class KeyedSequentialExecutor {
+
+    private final ConcurrentMap<Object, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the number of keys having a task running or waiting.
+     *
+     * @return the active key count
+     */
+    public int getActiveKeyCount() {
+        return tails.size();
+    }
+
+    /**
+     * Starts a task after the completion, successful or not, of the previous task
+     * of the same key.
+     *
+     * @param <T>  the generic type
+     * @param key  the key, null to start the task immediately
+     * @param task the task, starting an asynchronous execution
+     * @return the future result of the task
+     */
+    public <T> CompletableFuture<T> submit(final Object key, final Supplier<CompletableFuture<T>> task) {
+        if (key == null) {
+            return task.get();
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final CompletableFuture<?> previous = tails.put(key, done);
+        if (previous == null) {
+            start(key, task, result, done);
+        } else {
+            previous.whenComplete((value, failure) -> start(key, task, result, done));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyedSequentialExecutor [activeKeyCount=" + tails.size() + "]";
+    }
+
+    private <T> void start(final Object key, final Supplier<CompletableFuture<T>> task,
+                           final CompletableFuture<T> result, final CompletableFuture<Void> done) {
+        CompletableFuture<T> execution;
+        try {
+            execution = task.get();
+        } catch (final Throwable t) {
+            execution = new CompletableFuture<>();
+            execution.completeExceptionally(t);
+        }
+        execution.whenComplete((value, failure) -> {
+            // Reclaims the mailbox unless a task has been submitted meanwhile
+            tails.remove(key, done);
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+            done.complete(null);
+        });
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class MpscRingBuffer is a bounded lock-free queue with many producers and
+ * a single consumer.
+ * <p>
+ * Each slot has a sequence number : a producer claims a position with a CAS on
+ * the tail, writes the element and publishes it by advancing the sequence of
+ * the slot. The producers never wait for each other nor for the consumer, a
+ * full buffer refuses the element.
+ *
+ * @param <E> the type of the elements
+ */
+public final class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+
+    private volatile long head;
+
+    private final int mask;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Instantiates a new ring buffer.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     */
+    public MpscRingBuffer(final int capacity) {
+        Validate.isTrue(capacity > 0 && capacity <= 1 << 30, "Invalid capacity %d", capacity);
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[size];
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    /**
+     * Adds an element, from any thread.
+     *
+     * @param element the element
+     * @return true, if the element has been added, false if the buffer is full
+     */
+    public boolean offer(final E element) {
+        Validate.notNull(element);
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    // Publishes the element to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, from the consumer thread only.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long position = head;
+        final int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        final E element = (E) elements[index];
+        elements[index] = null;
+        // Frees the slot for the producers of the next lap
+        sequences.set(index, position + elements.length);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Gets the number of elements claimed and not yet consumed.
+     *
+     * @return the size
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(elements.length, tail.get() - head));
+    }
+}
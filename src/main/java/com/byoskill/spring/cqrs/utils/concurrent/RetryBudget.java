@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class RetryBudget limits the retries to a ratio of the requests. Every
+ * request deposits a fraction of token, every retry withdraws a token. The
+ * balance is kept in thousandths of token and updated without lock.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1_000;
+
+    private final AtomicLong balance;
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Instantiates a new retry budget.
+     *
+     * @param ratio      the token deposited by every request
+     * @param minRetries the initial number of tokens, and the minimum capacity of
+     *                   the budget
+     */
+    public RetryBudget(final double ratio, final int minRetries) {
+        deposit = (long) (ratio * TOKEN);
+        maxBalance = Math.max(minRetries, 10) * TOKEN;
+        balance = new AtomicLong(minRetries * TOKEN);
+    }
+
+    /**
+     * Deposits the share of a request.
+     */
+    public void deposit() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(maxBalance, current + amount));
+    }
+
+    /**
+     * Gets the number of retries available.
+     *
+     * @return the available retries
+     */
+    public long getAvailableRetries() {
+        return balance.get() / TOKEN;
+    }
+
+    /**
+     * Gets the number of retries refused because the budget was empty.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBudget [availableRetries=" + getAvailableRetries() + ", rejectedCount=" + rejectedCount + "]";
+    }
+
+    /**
+     * Withdraws the token of a retry.
+     *
+     * @return true, if the retry is allowed
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            final long current = balance.get();
+            if (current < TOKEN) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The Class TimeoutScheduler drives the deadlines of the commands with a single
+ * thread, no thread is spent per command. The timers are removed from the queue
+ * as soon as they are cancelled.
+ */
+public class TimeoutScheduler {
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Instantiates a new timeout scheduler, with a daemon thread.
+     */
+    public TimeoutScheduler() {
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "cqrs-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task  the task
+     * @param delay the delay in milliseconds
+     * @return the scheduled future, to cancel the task
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, final long delay) {
+        return scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduler.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Completes exceptionally a future if it is not completed before a delay.
+     *
+     * @param <T>       the generic type
+     * @param future    the future
+     * @param timeout   the delay in milliseconds
+     * @param onTimeout the failure of the future on timeout
+     * @return the future
+     */
+    public <T> CompletableFuture<T> within(final CompletableFuture<T> future, final long timeout,
+                                           final Supplier<? extends Throwable> onTimeout) {
+        if (future.isDone()) {
+            return future;
+        }
+        final ScheduledFuture<?> timer = schedule(() -> future.completeExceptionally(onTimeout.get()), timeout);
+        future.whenComplete((result, failure) -> timer.cancel(false));
+        return future;
+    }
+}
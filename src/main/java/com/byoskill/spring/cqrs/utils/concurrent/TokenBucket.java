@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.api.RateLimit;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Class TokenBucket is a lock-free rate limiter. It implements the generic
+ * cell rate algorithm : the only state is the theoretical time of the next
+ * permit, updated with a compare-and-set. A permit is reserved immediately and
+ * the caller waits, or not, until the reserved time.
+ * <p>
+ * After an idle period of at least the warm-up period, the interval between
+ * permits starts at three times the stable interval and decreases linearly to
+ * it during the warm-up.
+ */
+public class TokenBucket {
+
+    /**
+     * The immutable state of the bucket.
+     */
+    private static final class State {
+
+        private final long nextPermit;
+
+        private final long warmStart;
+
+        State(final long nextPermit, final long warmStart) {
+            this.nextPermit = nextPermit;
+            this.warmStart = warmStart;
+        }
+    }
+
+    private static final int COLD_FACTOR = 3;
+
+    private final AtomicLong grantedCount = new AtomicLong();
+
+    private final String name;
+
+    private final RateLimit rateLimit;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final long stableInterval;
+
+    private final AtomicReference<State> state;
+
+    private final long tolerance;
+
+    private final AtomicLong waitTime = new AtomicLong();
+
+    private final long warmUp;
+
+    /**
+     * Instantiates a new token bucket.
+     *
+     * @param name      the name
+     * @param rateLimit the rate limit
+     */
+    public TokenBucket(final String name, final RateLimit rateLimit) {
+        this.name = name;
+        this.rateLimit = rateLimit;
+        stableInterval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rateLimit.getPermitsPerSecond()));
+        tolerance = stableInterval * (rateLimit.getBurst() - 1);
+        warmUp = TimeUnit.MILLISECONDS.toNanos(rateLimit.getWarmUp());
+        final long now = System.nanoTime();
+        state = new AtomicReference<>(new State(now, now));
+    }
+
+    /**
+     * Acquires a permit, waiting for it if necessary.
+     *
+     * @throws CommandRejectedException if the thread is interrupted while waiting
+     */
+    public void acquire() {
+        sleep(reserve(Long.MAX_VALUE));
+    }
+
+    /**
+     * Gets the number of permits granted.
+     *
+     * @return the granted count
+     */
+    public long getGrantedCount() {
+        return grantedCount.get();
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the rate limit.
+     *
+     * @return the rate limit
+     */
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Gets the number of permits refused because the wait exceeded the time out.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the total time waited for the granted permits, in milliseconds.
+     *
+     * @return the wait time
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    /**
+     * Reserves a permit without waiting for it.
+     *
+     * @return the time to wait in nanoseconds before using the permit
+     */
+    public long reserve() {
+        return reserve(Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves a permit if it is available within a time out.
+     *
+     * @param maxWait the time out in nanoseconds
+     * @return the time to wait in nanoseconds before using the permit, or -1 if
+     * the permit is refused
+     */
+    public long reserve(final long maxWait) {
+        while (true) {
+            final long now = System.nanoTime();
+            final State current = state.get();
+            final boolean idle = now - current.nextPermit >= 0;
+            final long warmStart = warmUp > 0 && now - current.nextPermit >= warmUp ? now : current.warmStart;
+            final long granted = idle ? now : current.nextPermit;
+            final long wait = Math.max(0, granted - now - tolerance);
+            if (wait > maxWait) {
+                rejectedCount.incrementAndGet();
+                return -1;
+            }
+            final State next = new State(granted + interval(now + wait - warmStart), warmStart);
+            if (state.compareAndSet(current, next)) {
+                grantedCount.incrementAndGet();
+                waitTime.addAndGet(wait);
+                return wait;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket [name=" + name + ", rateLimit=" + rateLimit + ", grantedCount=" + grantedCount
+                + ", rejectedCount=" + rejectedCount + ", waitTime=" + getWaitTime() + "]";
+    }
+
+    /**
+     * Acquires a permit if it is available within a time out.
+     *
+     * @param timeout the time out
+     * @param unit    the unit of the time out
+     * @return true, if the permit is granted
+     * @throws CommandRejectedException if the thread is interrupted while waiting
+     */
+    public boolean tryAcquire(final long timeout, final TimeUnit unit) {
+        final long wait = reserve(unit.toNanos(timeout));
+        if (wait < 0) {
+            return false;
+        }
+        sleep(wait);
+        return true;
+    }
+
+    private long interval(final long warmElapsed) {
+        if (warmUp == 0 || warmElapsed >= warmUp) {
+            return stableInterval;
+        }
+        final double coldness = 1.0 - (double) Math.max(0, warmElapsed) / warmUp;
+        return (long) (stableInterval * (1 + (COLD_FACTOR - 1) * coldness));
+    }
+
+    private void sleep(final long wait) {
+        final long deadline = System.nanoTime() + wait;
+        for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CommandRejectedException("Interrupted while waiting for a permit of " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.validation;
+
+/**
+ * The Interface CommandValidator is implemented by the validators generated
+ * for the command classes annotated with
+ * {@link com.byoskill.spring.cqrs.annotations.GenerateValidator}.
+ *
+ * @param <T> the command type
+ */
+public interface CommandValidator<T> {
+
+    /**
+     * The suffix of the name of the generated validators.
+     */
+    String SUFFIX = "_Validator";
+
+    /**
+     * Checks if the constraints of the command are satisfied.
+     *
+     * @param command the command
+     * @return true, if the command is valid
+     */
+    boolean isValid(T command);
+}
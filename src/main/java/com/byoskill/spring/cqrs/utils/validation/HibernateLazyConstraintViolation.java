@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.validation;
+
+import org.hibernate.validator.internal.engine.ConstraintViolationImpl;
+import org.hibernate.validator.messageinterpolation.HibernateMessageInterpolatorContext;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.MessageInterpolator;
+import java.util.Map;
+
+/**
+ * The Class HibernateLazyConstraintViolation is a lazy violation of Hibernate
+ * Validator. Its interpolation context provides the message parameters and the
+ * expression variables added by the constraint validators, read by the
+ * interpolators of Hibernate Validator.
+ * <p>
+ * It is only loaded when Hibernate Validator is on the class path.
+ *
+ * @param <T> the type of the root bean
+ */
+final class HibernateLazyConstraintViolation<T> extends LazyConstraintViolation<T>
+        implements HibernateMessageInterpolatorContext {
+
+    /**
+     * Wraps a violation produced with the {@link LazyConstraintViolation#DEFERRED}
+     * interpolator.
+     *
+     * @param <T>          the type of the root bean
+     * @param violation    the violation
+     * @param interpolator the interpolator of the message
+     * @return the lazy violation
+     */
+    static <T> ConstraintViolation<T> wrap(final ConstraintViolation<T> violation,
+                                           final MessageInterpolator interpolator) {
+        return violation instanceof ConstraintViolationImpl
+                ? new HibernateLazyConstraintViolation<>(violation, interpolator)
+                : new LazyConstraintViolation<>(violation, interpolator);
+    }
+
+    private HibernateLazyConstraintViolation(final ConstraintViolation<T> delegate,
+                                             final MessageInterpolator interpolator) {
+        super(delegate, interpolator);
+    }
+
+    @Override
+    public Map<String, Object> getExpressionVariables() {
+        return ((ConstraintViolationImpl<T>) getDelegate()).getExpressionVariables();
+    }
+
+    @Override
+    public Map<String, Object> getMessageParameters() {
+        return ((ConstraintViolationImpl<T>) getDelegate()).getMessageParameters();
+    }
+
+    @Override
+    public Class<?> getRootBeanType() {
+        return getRootBeanClass();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.validation;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.MessageInterpolator;
+import javax.validation.Path;
+import javax.validation.metadata.ConstraintDescriptor;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The Class LazyConstraintViolation interpolates the message of a constraint
+ * violation on its first read.
+ * <p>
+ * The violation is produced by a validator using {@link #DEFERRED}, which keeps
+ * the message template as message. The violations of Hibernate Validator are
+ * wrapped by {@link HibernateLazyConstraintViolation}, keeping their message
+ * parameters and expression variables.
+ *
+ * @param <T> the type of the root bean
+ */
+class LazyConstraintViolation<T> implements ConstraintViolation<T>, MessageInterpolator.Context {
+
+    /**
+     * The message interpolator of the validators producing lazy violations : the
+     * interpolation is left to {@link LazyConstraintViolation#getMessage()}.
+     */
+    static final MessageInterpolator DEFERRED = new MessageInterpolator() {
+
+        @Override
+        public String interpolate(final String messageTemplate, final Context context) {
+            return messageTemplate;
+        }
+
+        @Override
+        public String interpolate(final String messageTemplate, final Context context, final Locale locale) {
+            return messageTemplate;
+        }
+    };
+
+    private static final boolean HIBERNATE_VALIDATOR = isPresent(
+            "org.hibernate.validator.internal.engine.ConstraintViolationImpl");
+
+    /**
+     * Wraps the violations produced with the {@link #DEFERRED} interpolator.
+     *
+     * @param <T>          the type of the root bean
+     * @param violations   the violations
+     * @param interpolator the interpolator of the messages
+     * @return the lazy violations
+     */
+    static <T> Set<ConstraintViolation<T>> wrap(final Set<ConstraintViolation<T>> violations,
+                                                final MessageInterpolator interpolator) {
+        if (violations.isEmpty()) {
+            return violations;
+        }
+        final Set<ConstraintViolation<T>> lazyViolations = new LinkedHashSet<>(violations.size() * 2);
+        for (final ConstraintViolation<T> violation : violations) {
+            lazyViolations.add(HIBERNATE_VALIDATOR ? HibernateLazyConstraintViolation.wrap(violation, interpolator)
+                    : new LazyConstraintViolation<>(violation, interpolator));
+        }
+        return Collections.unmodifiableSet(lazyViolations);
+    }
+
+    private static boolean isPresent(final String className) {
+        try {
+            Class.forName(className, false, LazyConstraintViolation.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private final ConstraintViolation<T> delegate;
+
+    private final MessageInterpolator interpolator;
+
+    private volatile String message;
+
+    LazyConstraintViolation(final ConstraintViolation<T> delegate, final MessageInterpolator interpolator) {
+        this.delegate = delegate;
+        this.interpolator = interpolator;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof LazyConstraintViolation && delegate.equals(((LazyConstraintViolation<?>) obj).delegate);
+    }
+
+    @Override
+    public ConstraintDescriptor<?> getConstraintDescriptor() {
+        return delegate.getConstraintDescriptor();
+    }
+
+    @Override
+    public Object[] getExecutableParameters() {
+        return delegate.getExecutableParameters();
+    }
+
+    @Override
+    public Object getExecutableReturnValue() {
+        return delegate.getExecutableReturnValue();
+    }
+
+    @Override
+    public Object getInvalidValue() {
+        return delegate.getInvalidValue();
+    }
+
+    /**
+     * Gets the wrapped violation.
+     *
+     * @return the violation
+     */
+    ConstraintViolation<T> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Object getLeafBean() {
+        return delegate.getLeafBean();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.validation.ConstraintViolation#getMessage()
+     */
+    @Override
+    public String getMessage() {
+        String result = message;
+        if (result == null) {
+            result = interpolator.interpolate(delegate.getMessageTemplate(), this);
+            message = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String getMessageTemplate() {
+        return delegate.getMessageTemplate();
+    }
+
+    @Override
+    public Path getPropertyPath() {
+        return delegate.getPropertyPath();
+    }
+
+    @Override
+    public T getRootBean() {
+        return delegate.getRootBean();
+    }
+
+    @Override
+    public Class<T> getRootBeanClass() {
+        return delegate.getRootBeanClass();
+    }
+
+    @Override
+    public Object getValidatedValue() {
+        return delegate.getInvalidValue();
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "LazyConstraintViolation [message=" + getMessage() + ", propertyPath=" + getPropertyPath()
+                + ", rootBeanClass=" + getRootBeanClass() + ", messageTemplate=" + getMessageTemplate() + "]";
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.validation.ConstraintViolation#unwrap(java.lang.Class)
+     */
+    @Override
+    public <U> U unwrap(final Class<U> type) {
+        return type.isInstance(this) ? type.cast(this) : delegate.unwrap(type);
+    }
+}
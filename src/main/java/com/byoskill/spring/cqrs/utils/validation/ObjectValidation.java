@@ -10,20 +10,108 @@
  */
 package com.byoskill.spring.cqrs.utils.validation;
 
+import com.byoskill.spring.cqrs.annotations.CommandValidation;
 import com.byoskill.spring.cqrs.api.CommandNotValidException;
+import com.byoskill.spring.cqrs.api.MessageInterpolation;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintViolation;
+import javax.validation.MessageInterpolator;
 import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+import java.util.Collections;
 import java.util.Set;
 
 /**
  * This class is used to performs manual validation of pojo.
+ * <p>
+ * The constraint metadata of each class is inspected once : the classes
+ * without constraints are not validated, the others are validated with the
+ * options of their {@link CommandValidation} annotation. The valid instances of
+ * a class annotated with {@link com.byoskill.spring.cqrs.annotations.GenerateValidator}
+ * are accepted by its generated {@link CommandValidator}, the invalid ones are
+ * still validated by the provider to report the violations.
+ * <p>
+ * Built from a validator factory, the messages of the violations are
+ * interpolated when they are read (see {@link MessageInterpolation}).
  *
  * @author sleroy
  */
 public class ObjectValidation {
 
+    /**
+     * The validation plan of a class.
+     */
+    private static final class ValidationPlan {
+
+        private final boolean constrained;
+
+        private final boolean failFast;
+
+        private final boolean fullPass;
+
+        private final CommandValidator<Object> generated;
+
+        private final Class<?>[] groups;
+
+        private final String[] properties;
+
+        ValidationPlan(final Class<?> type, final BeanDescriptor descriptor) {
+            constrained = descriptor.isBeanConstrained();
+            final CommandValidation options = type.getAnnotation(CommandValidation.class);
+            failFast = options != null && options.failFast();
+            groups = options == null ? new Class<?>[0] : options.groups();
+            properties = descriptor.getConstrainedProperties().stream()
+                    .filter(property -> !property.getConstraintDescriptors().isEmpty()
+                            || !property.getConstrainedContainerElementTypes().isEmpty())
+                    .map(PropertyDescriptor::getPropertyName).sorted().toArray(String[]::new);
+            fullPass = descriptor.hasConstraints() || descriptor.getConstrainedProperties().stream()
+                    .anyMatch(PropertyDescriptor::isCascaded);
+            generated = constrained && !failFast && groups.length == 0 ? loadGenerated(type) : null;
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObjectValidation.class);
+
+    @SuppressWarnings("unchecked")
+    private static CommandValidator<Object> loadGenerated(final Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        final String name = type.getName();
+        final int packageEnd = name.lastIndexOf('.') + 1;
+        final String generatedName = name.substring(0, packageEnd)
+                + name.substring(packageEnd).replace('$', '_') + CommandValidator.SUFFIX;
+        try {
+            final Class<?> generatedType = Class.forName(generatedName, true, classLoader);
+            if (!CommandValidator.class.isAssignableFrom(generatedType)) {
+                return null;
+            }
+            LOGGER.debug("Using the generated validator {}", generatedName);
+            return (CommandValidator<Object>) generatedType.getDeclaredConstructor().newInstance();
+        } catch (final ClassNotFoundException e) {
+            return null;
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Cannot use the generated validator {}", generatedName, e);
+            return null;
+        }
+    }
+
+    private final ClassValue<ValidationPlan> plans = new ClassValue<ValidationPlan>() {
+        @Override
+        protected ValidationPlan computeValue(final Class<?> type) {
+            return new ValidationPlan(type, validator.getConstraintsForClass(type));
+        }
+    };
+
+    private final MessageInterpolator interpolator;
+
     private final Validator validator;
 
     /**
@@ -35,6 +123,33 @@ public class ObjectValidation {
     public ObjectValidation(final Validator _validator) {
         super();
         validator = _validator;
+        interpolator = null;
+    }
+
+    /**
+     * Instantiates a new object validation interpolating the messages of the
+     * violations as requested.
+     *
+     * @param _validatorFactory     the validator factory
+     * @param _messageInterpolation the message interpolation
+     */
+    public ObjectValidation(final ValidatorFactory _validatorFactory,
+                            final MessageInterpolation _messageInterpolation) {
+        super();
+        switch (_messageInterpolation) {
+            case LAZY:
+                interpolator = _validatorFactory.getMessageInterpolator();
+                break;
+            case PARAMETERS:
+                interpolator = new ParameterMessageInterpolator();
+                break;
+            default:
+                interpolator = null;
+                break;
+        }
+        validator = interpolator == null ? _validatorFactory.getValidator()
+                : _validatorFactory.usingContext().messageInterpolator(LazyConstraintViolation.DEFERRED)
+                .getValidator();
     }
 
     /**
@@ -44,8 +159,17 @@ public class ObjectValidation {
      * @return true, if is valid
      */
     public boolean isValid(final Object _object) {
-        final Set<ConstraintViolation<Object>> constraints = validator.validate(_object);
-        return constraints.isEmpty();
+        return findViolations(_object).isEmpty();
+    }
+
+    /**
+     * Checks if the instances of a class have constraints to validate.
+     *
+     * @param _type the class
+     * @return true, if the class is constrained
+     */
+    public boolean isConstrained(final Class<?> _type) {
+        return plans.get(_type).constrained;
     }
 
     /**
@@ -54,9 +178,31 @@ public class ObjectValidation {
      * @param _object the object
      */
     public void validate(final Object _object) {
-        final Set<ConstraintViolation<Object>> constraints = validator.validate(_object);
+        final Set<ConstraintViolation<Object>> constraints = findViolations(_object);
         if (!constraints.isEmpty()) {
-            throw new CommandNotValidException("An object cannot be validated.\n Object : " + _object, constraints);
+            throw new CommandNotValidException(() -> "An object cannot be validated.\n Object : " + _object,
+                    interpolator == null ? constraints : LazyConstraintViolation.wrap(constraints, interpolator));
+        }
+    }
+
+    private Set<ConstraintViolation<Object>> findViolations(final Object _object) {
+        final ValidationPlan plan = plans.get(_object.getClass());
+        if (!plan.constrained) {
+            return Collections.emptySet();
+        }
+        if (plan.generated != null && plan.generated.isValid(_object)) {
+            return Collections.emptySet();
+        }
+        if (!plan.failFast) {
+            return validator.validate(_object, plan.groups);
+        }
+        for (final String property : plan.properties) {
+            final Set<ConstraintViolation<Object>> constraints = validator.validateProperty(_object, property,
+                    plan.groups);
+            if (!constraints.isEmpty()) {
+                return constraints;
+            }
         }
+        return plan.fullPass ? validator.validate(_object, plan.groups) : Collections.emptySet();
     }
 }
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.validation.processor;
+
+import com.byoskill.spring.cqrs.annotations.GenerateValidator;
+import com.byoskill.spring.cqrs.utils.validation.CommandValidator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.AnnotatedConstruct;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Class CommandValidatorProcessor generates the {@link CommandValidator} of
+ * the command classes annotated with {@link GenerateValidator}.
+ * <p>
+ * The generated validator checks the supported constraints of the fields
+ * (declared or inherited) with plain Java code, the regular expressions are
+ * compiled once. A class with an unsupported constraint (another constraint
+ * type, a validation group, a cascaded or a private field, a constrained
+ * getter, a class level constraint, a constraint on the elements of a container
+ * or a constraint declared by an implemented interface) is skipped with a
+ * warning.
+ */
+@SupportedAnnotationTypes("com.byoskill.spring.cqrs.annotations.GenerateValidator")
+public class CommandValidatorProcessor extends AbstractProcessor {
+
+    /**
+     * Thrown when a class cannot have a generated validator.
+     */
+    private static final class UnsupportedConstraintException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedConstraintException(final String message) {
+            super(message);
+        }
+    }
+
+    private static final String CONSTRAINT = "javax.validation.Constraint";
+
+    private static final String DEFAULT_GROUP = "javax.validation.groups.Default";
+
+    private static final String MAX = "javax.validation.constraints.Max";
+
+    private static final String MIN = "javax.validation.constraints.Min";
+
+    private static final String NOT_NULL = "javax.validation.constraints.NotNull";
+
+    private static final String PATTERN = "javax.validation.constraints.Pattern";
+
+    private static final String SIZE = "javax.validation.constraints.Size";
+
+    private static final Set<String> SUPPORTED = new HashSet<>(Arrays.asList(MAX, MIN, NOT_NULL, PATTERN, SIZE));
+
+    private static final Set<String> WHOLE_NUMBERS = new HashSet<>(
+            Arrays.asList("java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long"));
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final Element element : roundEnv.getElementsAnnotatedWith(GenerateValidator.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateValidator is only supported on classes", element);
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            try {
+                write(type, generate(type));
+            } catch (final UnsupportedConstraintException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "No validator generated for " + type.getQualifiedName() + " : " + e.getMessage(), type);
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write the validator of " + type.getQualifiedName() + " : " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    private String access(final TypeElement type, final TypeElement owner, final VariableElement field) {
+        return owner.equals(type) ? "command." + field.getSimpleName()
+                : "((" + owner.getQualifiedName() + ") command)." + field.getSimpleName();
+    }
+
+    private List<String> checks(final TypeElement type, final List<String> patterns)
+            throws UnsupportedConstraintException {
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getNestingKind() == NestingKind.LOCAL
+                || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new UnsupportedConstraintException("the class is not accessible");
+        }
+        final String packageName = getPackage(type).getQualifiedName().toString();
+        final List<String> checks = new ArrayList<>();
+        for (TypeElement owner = type; owner != null; owner = superclass(owner)) {
+            if (hasConstraint(owner)) {
+                throw new UnsupportedConstraintException("class level constraint on " + owner.getSimpleName());
+            }
+            checkInterfaces(owner);
+            for (final Element member : owner.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.METHOD && hasConstraint(member)) {
+                    throw new UnsupportedConstraintException("constrained method " + member.getSimpleName());
+                }
+                if (member.getKind() != ElementKind.FIELD || member.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                final VariableElement field = (VariableElement) member;
+                checkContainerElements(field, field.asType());
+                final List<? extends AnnotationMirror> constraints = getConstraints(field);
+                if (constraints.isEmpty()) {
+                    continue;
+                }
+                if (field.getModifiers().contains(Modifier.PRIVATE)
+                        || !field.getModifiers().contains(Modifier.PUBLIC)
+                        && !packageName.equals(getPackage(owner).getQualifiedName().toString())) {
+                    throw new UnsupportedConstraintException("the field " + field.getSimpleName()
+                            + " is not accessible");
+                }
+                for (final AnnotationMirror constraint : constraints) {
+                    checks.add(check(access(type, owner, field), field, constraint, patterns));
+                }
+            }
+        }
+        return checks;
+    }
+
+    private void checkContainerElements(final VariableElement field, final TypeMirror type)
+            throws UnsupportedConstraintException {
+        final List<TypeMirror> elements = new ArrayList<>();
+        if (type.getKind() == TypeKind.ARRAY) {
+            elements.add(((ArrayType) type).getComponentType());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            elements.addAll(((DeclaredType) type).getTypeArguments());
+        } else if (type.getKind() == TypeKind.WILDCARD) {
+            final WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getExtendsBound() != null) {
+                elements.add(wildcard.getExtendsBound());
+            }
+            if (wildcard.getSuperBound() != null) {
+                elements.add(wildcard.getSuperBound());
+            }
+        }
+        for (final TypeMirror element : elements) {
+            if (hasConstraint(element)) {
+                throw new UnsupportedConstraintException("constrained container elements of "
+                        + field.getSimpleName());
+            }
+            checkContainerElements(field, element);
+        }
+    }
+
+    private void checkInterfaces(final TypeElement type) throws UnsupportedConstraintException {
+        for (final TypeMirror interfaceType : type.getInterfaces()) {
+            final TypeElement element = (TypeElement) ((DeclaredType) interfaceType).asElement();
+            if (hasConstraint(element)) {
+                throw new UnsupportedConstraintException("constraints declared by the interface "
+                        + element.getQualifiedName());
+            }
+            for (final Element member : element.getEnclosedElements()) {
+                if (hasConstraint(member)) {
+                    throw new UnsupportedConstraintException("constraints declared by the interface "
+                            + element.getQualifiedName());
+                }
+            }
+            checkInterfaces(element);
+        }
+    }
+
+    private String check(final String value, final VariableElement field, final AnnotationMirror constraint,
+                         final List<String> patterns) throws UnsupportedConstraintException {
+        final String name = getName(constraint);
+        if (!SUPPORTED.contains(name)) {
+            throw new UnsupportedConstraintException("unsupported constraint @" + name + " on " + field.getSimpleName());
+        }
+        if (hasGroups(constraint)) {
+            throw new UnsupportedConstraintException("validation groups on " + field.getSimpleName());
+        }
+        final TypeMirror fieldType = field.asType();
+        final boolean primitive = fieldType.getKind().isPrimitive();
+        switch (name) {
+            case NOT_NULL:
+                return primitive ? "false" : value + " == null";
+            case SIZE:
+                final javax.validation.constraints.Size size = field.getAnnotation(
+                        javax.validation.constraints.Size.class);
+                final String length = length(value, field);
+                return value + " != null && (" + length + " < " + size.min() + " || " + length + " > " + size.max()
+                        + ")";
+            case MIN:
+                return bound(value, field, field.getAnnotation(javax.validation.constraints.Min.class).value(), "<");
+            case MAX:
+                return bound(value, field, field.getAnnotation(javax.validation.constraints.Max.class).value(), ">");
+            default:
+                if (!isAssignable(fieldType, "java.lang.CharSequence")) {
+                    throw new UnsupportedConstraintException("@Pattern on " + field.getSimpleName());
+                }
+                final javax.validation.constraints.Pattern pattern = field.getAnnotation(
+                        javax.validation.constraints.Pattern.class);
+                int flags = 0;
+                for (final javax.validation.constraints.Pattern.Flag flag : pattern.flags()) {
+                    flags |= flag.getValue();
+                }
+                patterns.add("java.util.regex.Pattern.compile("
+                        + processingEnv.getElementUtils().getConstantExpression(pattern.regexp()) + ", " + flags + ")");
+                return value + " != null && !PATTERN_" + (patterns.size() - 1) + ".matcher(" + value + ").matches()";
+        }
+    }
+
+    private String bound(final String value, final VariableElement field, final long bound, final String operator)
+            throws UnsupportedConstraintException {
+        final TypeMirror fieldType = field.asType();
+        switch (fieldType.getKind()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return value + " " + operator + " " + bound + "L";
+            case DECLARED:
+                final String typeName = getName((DeclaredType) fieldType);
+                if (WHOLE_NUMBERS.contains(typeName)) {
+                    return value + " != null && " + value + " " + operator + " " + bound + "L";
+                }
+                if ("java.math.BigDecimal".equals(typeName) || "java.math.BigInteger".equals(typeName)) {
+                    return value + " != null && " + value + ".compareTo(" + typeName + ".valueOf(" + bound + "L)) "
+                            + operator + " 0";
+                }
+                break;
+            default:
+                break;
+        }
+        throw new UnsupportedConstraintException("@Min/@Max on the type " + fieldType + " of "
+                + field.getSimpleName());
+    }
+
+    private String generate(final TypeElement type) throws UnsupportedConstraintException {
+        final List<String> patterns = new ArrayList<>();
+        final List<String> checks = checks(type, patterns);
+        final StringBuilder source = new StringBuilder();
+        final PackageElement packageElement = getPackage(type);
+        source.append("// Generated by ").append(CommandValidatorProcessor.class.getSimpleName())
+                .append(", do not edit.\n");
+        if (!packageElement.isUnnamed()) {
+            source.append("package ").append(packageElement.getQualifiedName()).append(";\n");
+        }
+        source.append("\npublic final class ").append(getValidatorSimpleName(type)).append(" implements ")
+                .append(CommandValidator.class.getCanonicalName()).append('<').append(type.getQualifiedName())
+                .append("> {\n");
+        for (int i = 0; i < patterns.size(); i++) {
+            source.append("\n    private static final java.util.regex.Pattern PATTERN_").append(i).append(" = ")
+                    .append(patterns.get(i)).append(";\n");
+        }
+        source.append("\n    @Override\n    public boolean isValid(final ").append(type.getQualifiedName())
+                .append(" command) {\n");
+        for (final String check : checks) {
+            source.append("        if (").append(check).append(") {\n            return false;\n        }\n");
+        }
+        source.append("        return true;\n    }\n}\n");
+        return source.toString();
+    }
+
+    private List<? extends AnnotationMirror> getConstraints(final Element element)
+            throws UnsupportedConstraintException {
+        final List<AnnotationMirror> constraints = new ArrayList<>();
+        for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            final String name = getName(annotation);
+            if ("javax.validation.Valid".equals(name)) {
+                throw new UnsupportedConstraintException("cascaded field " + element.getSimpleName());
+            }
+            if (isConstraint(annotation) || SUPPORTED.contains(name)) {
+                constraints.add(annotation);
+            } else if (name.startsWith("javax.validation.") || name.startsWith("org.hibernate.validator.")) {
+                throw new UnsupportedConstraintException("unsupported constraint @" + name + " on "
+                        + element.getSimpleName());
+            }
+        }
+        return constraints;
+    }
+
+    private String getName(final AnnotationMirror annotation) {
+        return getName(annotation.getAnnotationType());
+    }
+
+    private String getName(final DeclaredType type) {
+        return ((TypeElement) type.asElement()).getQualifiedName().toString();
+    }
+
+    private PackageElement getPackage(final TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type);
+    }
+
+    private String getValidatorSimpleName(final TypeElement type) {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final PackageElement packageElement = getPackage(type);
+        final String simpleName = packageElement.isUnnamed() ? binaryName
+                : binaryName.substring(packageElement.getQualifiedName().length() + 1);
+        return simpleName.replace('$', '_') + CommandValidator.SUFFIX;
+    }
+
+    private boolean hasConstraint(final AnnotatedConstruct construct) {
+        for (final AnnotationMirror annotation : construct.getAnnotationMirrors()) {
+            if (isConstraint(annotation) || "javax.validation.Valid".equals(getName(annotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasGroups(final AnnotationMirror constraint) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : constraint
+                .getElementValues().entrySet()) {
+            if ("groups".contentEquals(entry.getKey().getSimpleName())) {
+                for (final Object group : (List<?>) entry.getValue().getValue()) {
+                    final TypeMirror groupType = (TypeMirror) ((AnnotationValue) group).getValue();
+                    if (!DEFAULT_GROUP.equals(getName((DeclaredType) groupType))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isAssignable(final TypeMirror type, final String target) {
+        final TypeElement targetElement = processingEnv.getElementUtils().getTypeElement(target);
+        return targetElement != null && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type),
+                processingEnv.getTypeUtils().erasure(targetElement.asType()));
+    }
+
+    private boolean isConstraint(final AnnotationMirror annotation) {
+        for (final AnnotationMirror meta : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (CONSTRAINT.equals(getName(meta))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String length(final String value, final VariableElement field) throws UnsupportedConstraintException {
+        final TypeMirror fieldType = field.asType();
+        if (fieldType.getKind() == TypeKind.ARRAY) {
+            return value + ".length";
+        }
+        if (isAssignable(fieldType, "java.lang.CharSequence")) {
+            return value + ".length()";
+        }
+        if (isAssignable(fieldType, "java.util.Collection") || isAssignable(fieldType, "java.util.Map")) {
+            return value + ".size()";
+        }
+        throw new UnsupportedConstraintException("@Size on the type " + fieldType + " of " + field.getSimpleName());
+    }
+
+    private TypeElement superclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return "java.lang.Object".contentEquals(element.getQualifiedName()) ? null : element;
+    }
+
+    private void write(final TypeElement type, final String source) throws IOException {
+        final PackageElement packageElement = getPackage(type);
+        final String name = (packageElement.isUnnamed() ? "" : packageElement.getQualifiedName() + ".")
+                + getValidatorSimpleName(type);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+            writer.write(source);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.workflow.impl;
+
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+
+import java.util.concurrent.CompletionStage;
+
+public class AsyncCommandRunnerChainBlock implements AsyncCommandRunnerChain {
+    private final AsyncCommandRunner commandRunner;
+
+    private final AsyncCommandRunnerChain chain;
+
+    /**
+     * Instantiates a new async command runner chain block.
+     *
+     * @param commandRunner the command runner
+     * @param chain         the chain
+     */
+    public AsyncCommandRunnerChainBlock(final AsyncCommandRunner commandRunner, final AsyncCommandRunnerChain chain) {
+        this.commandRunner = commandRunner;
+        this.chain = chain;
+    }
+
+    @Override
+    public CompletionStage<Object> executeAsync(final CommandExecutionContext context) {
+        try {
+            return commandRunner.executeAsync(context, chain);
+        } catch (final RuntimeException e) {
+            return CompletionStages.failed(e);
+        }
+    }
+}
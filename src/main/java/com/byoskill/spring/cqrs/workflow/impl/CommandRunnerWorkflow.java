@@ -10,9 +10,12 @@
  */
 package com.byoskill.spring.cqrs.workflow.impl;
 
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
 import com.byoskill.spring.cqrs.executors.api.CommandRunner;
 import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
 import com.byoskill.spring.cqrs.executors.impl.DefaultCommandRunner;
+import com.byoskill.spring.cqrs.executors.impl.SyncCommandRunnerAdapter;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -85,6 +88,49 @@ public class CommandRunnerWorkflow {
         return commandRunnerChainBlock;
     }
 
+    /**
+     * Compiles the chain for a command type. The steps that are not applicable to
+     * the command type are left out. The chain is immutable and can be reused to
+     * execute every command of this type.
+     *
+     * @param descriptor           the command type descriptor
+     * @param defaultCommandRunner the default command runner
+     * @return the command runner chain
+     */
+    public CommandRunnerChain compile(final CommandTypeDescriptor descriptor,
+                                      final DefaultCommandRunner defaultCommandRunner) {
+        final ArrayList<CommandRunner> newWorkflow = new ArrayList<>(runnerSteps.size() + 1);
+        for (final CommandRunner runnerStep : runnerSteps) {
+            if (runnerStep.isApplicable(descriptor)) {
+                newWorkflow.add(runnerStep);
+            }
+        }
+        newWorkflow.add(defaultCommandRunner);
+        return buildChain(newWorkflow, 0);
+    }
+
+    /**
+     * Compiles the asynchronous chain for a command type. The synchronous steps
+     * are adapted, they hold the thread until the next steps complete.
+     *
+     * @param descriptor           the command type descriptor
+     * @param defaultCommandRunner the default command runner
+     * @return the asynchronous command runner chain
+     * @see #compile(CommandTypeDescriptor, DefaultCommandRunner)
+     */
+    public AsyncCommandRunnerChain compileAsync(final CommandTypeDescriptor descriptor,
+                                                final DefaultCommandRunner defaultCommandRunner) {
+        AsyncCommandRunnerChain chain = new AsyncCommandRunnerChainBlock(
+                SyncCommandRunnerAdapter.adapt(defaultCommandRunner), null);
+        for (int i = runnerSteps.size() - 1; i >= 0; i--) {
+            final CommandRunner runnerStep = runnerSteps.get(i);
+            if (runnerStep.isApplicable(descriptor)) {
+                chain = new AsyncCommandRunnerChainBlock(SyncCommandRunnerAdapter.adapt(runnerStep), chain);
+            }
+        }
+        return chain;
+    }
+
     /**
      * Gets the runner steps.
      *
@@ -11,11 +11,18 @@
 package com.byoskill.spring.cqrs.workflow.impl;
 
 import com.byoskill.spring.cqrs.executors.api.CommandRunner;
+import com.byoskill.spring.cqrs.executors.cache.CommandCacheRunner;
+import com.byoskill.spring.cqrs.executors.circuitbreaker.CircuitBreakerRunner;
+import com.byoskill.spring.cqrs.executors.diagnostic.MonitorDiagnosticRunner;
 import com.byoskill.spring.cqrs.executors.event.EventThrowerRunner;
 import com.byoskill.spring.cqrs.executors.exception.DefaultExceptionHandlerRunner;
+import com.byoskill.spring.cqrs.executors.limit.AdaptiveConcurrencyRunner;
 import com.byoskill.spring.cqrs.executors.logging.CommandLoggingRunner;
 import com.byoskill.spring.cqrs.executors.profiling.CommandProfilingRunner;
+import com.byoskill.spring.cqrs.executors.retry.RetryRunner;
+import com.byoskill.spring.cqrs.executors.singleflight.SingleFlightRunner;
 import com.byoskill.spring.cqrs.executors.throttling.CommandThrottlingRunner;
+import com.byoskill.spring.cqrs.executors.timeout.CommandTimeoutRunner;
 import com.byoskill.spring.cqrs.executors.tracing.CommandTraceRunner;
 import com.byoskill.spring.cqrs.executors.validating.CommandValidatingRunner;
 import com.byoskill.spring.cqrs.workflow.api.CommandRunningWorkflowConfigurer;
@@ -31,10 +38,16 @@ public class CommandRunnerWorkflowService {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(CommandRunnerWorkflowService.class);
 
+    protected final AdaptiveConcurrencyRunner adaptiveConcurrencyRunner;
+    protected final CommandCacheRunner commandCacheRunner;
+    protected final CircuitBreakerRunner circuitBreakerRunner;
     protected final CommandRunner defaultExceptionHandlerRunner;
     protected final CommandLoggingRunner commandLoggingRunner;
     protected final CommandProfilingRunner commandProfilingRunner;
+    protected final RetryRunner retryRunner;
+    protected final SingleFlightRunner singleFlightRunner;
     protected final CommandThrottlingRunner commandThrottlingRunner;
+    protected final CommandTimeoutRunner commandTimeoutRunner;
     protected final CommandTraceRunner commandTraceRunner;
     protected final CommandValidatingRunner commandValidatingRunner;
     private final Optional<CommandRunningWorkflowConfigurer> configurer;
@@ -48,26 +61,46 @@ public class CommandRunnerWorkflowService {
             final CommandLoggingRunner commandLoggingRunner,
             final CommandProfilingRunner commandProfilingRunner,
             final CommandThrottlingRunner commandThrottlingRunner,
+            final CommandTimeoutRunner commandTimeoutRunner,
             final CommandTraceRunner commandTraceRunner,
             final CommandValidatingRunner commandValidatingRunner,
             final EventThrowerRunner eventThrowerRunner,
+            final MonitorDiagnosticRunner monitorDiagnosticRunner,
+            final SingleFlightRunner singleFlightRunner,
+            final CommandCacheRunner commandCacheRunner,
+            final AdaptiveConcurrencyRunner adaptiveConcurrencyRunner,
+            final CircuitBreakerRunner circuitBreakerRunner,
+            final RetryRunner retryRunner,
             final Optional<CommandRunningWorkflowConfigurer> configurer) {
         super();
         this.defaultExceptionHandlerRunner = defaultExceptionHandlerRunner;
         this.commandLoggingRunner = commandLoggingRunner;
         this.commandProfilingRunner = commandProfilingRunner;
+        this.singleFlightRunner = singleFlightRunner;
         this.commandThrottlingRunner = commandThrottlingRunner;
+        this.commandTimeoutRunner = commandTimeoutRunner;
         this.commandTraceRunner = commandTraceRunner;
         this.commandValidatingRunner = commandValidatingRunner;
+        this.commandCacheRunner = commandCacheRunner;
+        this.adaptiveConcurrencyRunner = adaptiveConcurrencyRunner;
+        this.circuitBreakerRunner = circuitBreakerRunner;
+        this.retryRunner = retryRunner;
         this.configurer = configurer;
         defaultWorkflow = new CommandRunnerWorkflow().addSteps(
                 commandLoggingRunner,
+                commandCacheRunner,
+                singleFlightRunner,
                 commandThrottlingRunner,
                 commandValidatingRunner,
+                retryRunner,
+                adaptiveConcurrencyRunner,
+                circuitBreakerRunner,
+                commandTimeoutRunner,
                 commandProfilingRunner,
                 commandTraceRunner,
                 eventThrowerRunner,
-                defaultExceptionHandlerRunner);
+                defaultExceptionHandlerRunner,
+                monitorDiagnosticRunner);
 
     }
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
+import com.byoskill.spring.cqrs.api.DispatchMode;
+import com.byoskill.spring.cqrs.gate.api.Gate;
+import com.byoskill.spring.cqrs.gate.conf.DefaultLoggingConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.ImportCqrsInjectionConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.ImportDefaultCqrsConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.ImportGuavaEventBusConfiguration;
+import com.byoskill.spring.cqrs.gate.impl.CommandServicePostProcessor;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Arrays;
+
+/**
+ * Measures the latency of Gate.dispatch() with a trivial handler, for each
+ * dispatch mode.
+ * <p>
+ * Run it with : gradle benchmark -PbenchmarkClass=DispatchModeBenchmark
+ */
+public class DispatchModeBenchmark {
+
+    @Configuration
+    static class BenchmarkConfiguration {
+
+        @Bean
+        public EchoHandler echoHandler() {
+            return new EchoHandler();
+        }
+
+        @Bean
+        Validator validator() {
+            return Validation.buildDefaultValidatorFactory().getValidator();
+        }
+    }
+
+    static class Echo {
+        final int value;
+
+        Echo(final int value) {
+            this.value = value;
+        }
+    }
+
+    static class EchoHandler implements CommandServiceSpec<Echo, Integer> {
+
+        @Override
+        public Integer handle(final Echo command) {
+            return command.value;
+        }
+    }
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final int WARMUP = 100_000;
+
+    public static void main(final String[] args) {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(Level.WARN);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                BenchmarkConfiguration.class, ImportDefaultCqrsConfiguration.class,
+                ImportGuavaEventBusConfiguration.class, ImportCqrsInjectionConfiguration.class,
+                CommandServicePostProcessor.class)) {
+            final DefaultLoggingConfiguration loggingConfiguration = context.getBean(DefaultLoggingConfiguration.class);
+            loggingConfiguration.setLoggingEnabled(false);
+            loggingConfiguration.setProfilingEnabled(false);
+            final DefaultExecutionConfiguration executionConfiguration = context
+                    .getBean(DefaultExecutionConfiguration.class);
+            final Gate gate = context.getBean(Gate.class);
+
+            for (final DispatchMode mode : DispatchMode.values()) {
+                executionConfiguration.setDispatchMode(mode);
+                measure(gate, WARMUP);
+                report(mode.name(), measure(gate, ITERATIONS));
+            }
+        }
+    }
+
+    static long[] measure(final Gate gate, final int iterations) {
+        final long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            gate.dispatch(new Echo(i), Integer.class);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    static void report(final String name, final long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%-14s p50=%7.2f us  p99=%7.2f us  p99.9=%8.2f us  max=%9.2f us%n", name,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1000.0);
+    }
+
+    private static double percentile(final long[] sortedLatencies, final double percentile) {
+        return sortedLatencies[(int) Math.ceil(percentile * sortedLatencies.length) - 1] / 1000.0;
+    }
+}
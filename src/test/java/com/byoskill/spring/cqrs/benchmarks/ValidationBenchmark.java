@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.benchmarks;
+
+import com.byoskill.spring.cqrs.annotations.GenerateValidator;
+import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+
+/**
+ * Measures the cost of the validation of a command per dispatch : the command
+ * without constraints skips the validation, the constrained command is
+ * validated by Hibernate Validator, the generated command by its generated
+ * validator.
+ * <p>
+ * Run it with : gradle benchmark -PbenchmarkClass=ValidationBenchmark
+ */
+public class ValidationBenchmark {
+
+    static class Constrained {
+        @NotNull
+        final String value;
+
+        Constrained(final String value) {
+            this.value = value;
+        }
+    }
+
+    @GenerateValidator
+    static class Generated {
+        @NotNull
+        final String value;
+
+        Generated(final String value) {
+            this.value = value;
+        }
+    }
+
+    static class Unconstrained {
+        final String value;
+
+        Unconstrained(final String value) {
+            this.value = value;
+        }
+    }
+
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final int WARMUP = 200_000;
+
+    public static void main(final String[] args) {
+        final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        final ObjectValidation objectValidation = new ObjectValidation(validator);
+        final Object unconstrained = new Unconstrained("value");
+        final Object constrained = new Constrained("value");
+        final Object generated = new Generated("value");
+
+        measure(validator, unconstrained, WARMUP);
+        report("validator, unconstrained", measure(validator, unconstrained, ITERATIONS));
+        measure(objectValidation, unconstrained, WARMUP);
+        report("skipped, unconstrained", measure(objectValidation, unconstrained, ITERATIONS));
+        measure(objectValidation, constrained, WARMUP);
+        report("validated, constrained", measure(objectValidation, constrained, ITERATIONS));
+        measure(objectValidation, generated, WARMUP);
+        report("generated, constrained", measure(objectValidation, generated, ITERATIONS));
+    }
+
+    static long[] measure(final ObjectValidation objectValidation, final Object command, final int iterations) {
+        final long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            objectValidation.validate(command);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    static long[] measure(final Validator validator, final Object command, final int iterations) {
+        final long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            validator.validate(command);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    static void report(final String name, final long[] latencies) {
+        Arrays.sort(latencies);
+        long total = 0;
+        for (final long latency : latencies) {
+            total += latency;
+        }
+        System.out.printf("%-26s mean=%7.1f ns  p50=%7d ns  p99=%7d ns%n", name, (double) total / latencies.length,
+                latencies[latencies.length / 2], latencies[(int) Math.ceil(0.99 * latencies.length) - 1]);
+    }
+}
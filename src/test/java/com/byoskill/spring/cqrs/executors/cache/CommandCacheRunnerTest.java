@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.cache;
+
+import com.byoskill.spring.cqrs.annotations.CacheResult;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.EventBusService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandCacheRunnerTest {
+
+    @CacheResult(maximumSize = 10, invalidatedBy = UserRenamed.class)
+    static class FindUser {
+        private final String name;
+
+        FindUser(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof FindUser && ((FindUser) obj).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+
+    static class UserRenamed {
+    }
+
+    private final CommandCacheRunner runner = new CommandCacheRunner();
+
+    private final CommandTypeDescriptor descriptor = new CommandTypeDescriptor(FindUser.class, null);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final CommandRunnerChain chain = ctx -> "USER-" + executions.incrementAndGet();
+
+    @Test
+    public void testCaching() {
+        Assert.assertEquals("USER-1", runner.execute(find("john"), chain));
+        Assert.assertEquals("USER-1", runner.execute(find("john"), chain));
+        Assert.assertEquals("USER-2", runner.execute(find("jane"), chain));
+
+        final CommandCacheRunner.CommandCacheStatistics statistics = runner.getStatistics().get(FindUser.class);
+        Assert.assertEquals(1, statistics.getHitCount());
+        Assert.assertEquals(2, statistics.getMissCount());
+        Assert.assertEquals(2, statistics.getEstimatedSize());
+    }
+
+    @Test
+    public void testInvalidation() {
+        Assert.assertEquals("USER-1", runner.execute(find("john"), chain));
+        runner.invalidate("unrelated event");
+        Assert.assertEquals("USER-1", runner.execute(find("john"), chain));
+        runner.invalidate(new UserRenamed());
+        Assert.assertEquals("USER-2", runner.execute(find("john"), chain));
+    }
+
+    @Test
+    public void testInvalidationOnPublication() {
+        final List<Object> undelivered = new ArrayList<>();
+        final EventBusService eventBus = new CacheInvalidatingEventBusService(runner, undelivered::add);
+
+        Assert.assertEquals("USER-1", runner.execute(find("john"), chain));
+        eventBus.publishEvent(new UserRenamed());
+        // Dispatched right after the publication, before the bus delivers the event
+        Assert.assertEquals("USER-2", runner.execute(find("john"), chain));
+        Assert.assertEquals(1, undelivered.size());
+    }
+
+    @Test
+    public void testInvalidationDuringExecution() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CommandRunnerChain slowChain = ctx -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return chain.execute(ctx);
+        };
+
+        final CompletableFuture<Object> stale = CompletableFuture
+                .supplyAsync(() -> runner.execute(find("john"), slowChain));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        runner.invalidate(new UserRenamed());
+        release.countDown();
+        Assert.assertEquals("USER-1", stale.get(5, TimeUnit.SECONDS));
+
+        // The result read before the event has not been cached
+        Assert.assertEquals("USER-2", runner.execute(find("john"), chain));
+        Assert.assertEquals("USER-2", runner.execute(find("john"), chain));
+    }
+
+    @Test
+    public void testInvalidationDuringExecutionAsync() throws Exception {
+        final CompletableFuture<Object> pending = new CompletableFuture<>();
+        final AsyncCommandRunnerChain pendingChain = ctx -> pending;
+
+        final CompletionStage<Object> stale = runner.executeAsync(find("john"), pendingChain);
+        runner.invalidate(new UserRenamed());
+        pending.complete("USER-0");
+        Assert.assertEquals("USER-0", stale.toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+        final AsyncCommandRunnerChain asyncChain = ctx -> CompletableFuture.completedFuture(chain.execute(ctx));
+        Assert.assertEquals("USER-1", runner.executeAsync(find("john"), asyncChain)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("USER-1", runner.executeAsync(find("john"), asyncChain)
+                .toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+
+    private CommandExecutionContext find(final String name) {
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn(new FindUser(name));
+        when(context.getDescriptor()).thenReturn(descriptor);
+        return context;
+    }
+}
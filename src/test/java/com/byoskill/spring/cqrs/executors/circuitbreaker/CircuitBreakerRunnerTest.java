@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.circuitbreaker;
+
+import com.byoskill.spring.cqrs.annotations.CircuitBreaker;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.executors.circuitbreaker.CommandCircuitBreaker.State;
+import com.byoskill.spring.cqrs.gate.api.CircuitBreakerOpenException;
+import com.byoskill.spring.cqrs.gate.api.EventBusService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CircuitBreakerRunnerTest {
+
+    @CircuitBreaker(minimumNumberOfCalls = 4, slidingWindowSize = 4, waitDurationInOpenState = 50,
+            permittedCallsInHalfOpenState = 2)
+    static class CallPartner {
+    }
+
+    private final List<Object> events = new ArrayList<>();
+
+    private final EventBusService eventBusService = events::add;
+
+    private final CircuitBreakerRunner runner = new CircuitBreakerRunner(eventBusService);
+
+    private final CommandExecutionContext context = mock(CommandExecutionContext.class);
+
+    @Before
+    public void setUp() {
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(CallPartner.class, null));
+    }
+
+    @Test
+    public void testOpenThenHalfOpenThenClosed() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final CommandRunnerChain failing = ctx -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("partner down");
+        };
+        for (int i = 0; i < 4; i++) {
+            execute(failing, IllegalStateException.class);
+        }
+        final CommandCircuitBreaker circuitBreaker = runner.getCircuitBreakers().get(CallPartner.class.getName());
+        Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+
+        execute(failing, CircuitBreakerOpenException.class);
+        Assert.assertEquals(4, executions.get());
+        Assert.assertEquals(1, circuitBreaker.getNotPermittedCount());
+
+        Thread.sleep(60);
+        final CommandRunnerChain working = ctx -> executions.incrementAndGet();
+        runner.execute(context, working);
+        Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        runner.execute(context, working);
+        Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        Assert.assertEquals(3, events.size());
+        final CircuitBreakerStateChangedEvent closed = (CircuitBreakerStateChangedEvent) events.get(2);
+        Assert.assertEquals(State.HALF_OPEN, closed.getFrom());
+        Assert.assertEquals(State.CLOSED, closed.getTo());
+    }
+
+    @Test
+    public void testProbeFailureReopens() throws Exception {
+        final CommandRunnerChain failing = ctx -> {
+            throw new IllegalStateException("partner down");
+        };
+        for (int i = 0; i < 4; i++) {
+            execute(failing, IllegalStateException.class);
+        }
+        final CommandCircuitBreaker circuitBreaker = runner.getCircuitBreakers().get(CallPartner.class.getName());
+        Thread.sleep(60);
+        execute(failing, IllegalStateException.class);
+
+        // The failed probe reopens the circuit for another wait duration
+        Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+        execute(failing, CircuitBreakerOpenException.class);
+        Assert.assertEquals(1, circuitBreaker.getNotPermittedCount());
+
+        assertTransitions(State.CLOSED, State.OPEN, State.HALF_OPEN, State.OPEN);
+
+        Thread.sleep(60);
+        Assert.assertEquals("PROBE", runner.execute(context, ctx -> "PROBE"));
+        Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    private void assertTransitions(final State... states) {
+        Assert.assertEquals(states.length - 1, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            final CircuitBreakerStateChangedEvent event = (CircuitBreakerStateChangedEvent) events.get(i);
+            Assert.assertEquals(states[i], event.getFrom());
+            Assert.assertEquals(states[i + 1], event.getTo());
+        }
+    }
+
+    private void execute(final CommandRunnerChain chain, final Class<? extends Exception> expected) {
+        try {
+            runner.execute(context, chain);
+            Assert.fail("The command should have failed");
+        } catch (final RuntimeException e) {
+            Assert.assertEquals(expected, e.getClass());
+        }
+    }
+}
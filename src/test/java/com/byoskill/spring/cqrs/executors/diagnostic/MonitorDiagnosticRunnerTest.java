@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.diagnostic;
+
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MonitorDiagnosticRunnerTest {
+
+    static class FakeCommand {
+    }
+
+    private final Object lock = new Object();
+
+    private MonitorDiagnosticRunner runner;
+
+    private CommandExecutionContext context;
+
+    @After
+    public void after() {
+        runner.destroy();
+    }
+
+    @Before
+    public void before() {
+        final DefaultExecutionConfiguration configuration = new DefaultExecutionConfiguration();
+        configuration.setMonitorDiagnosticEnabled(true);
+        configuration.setMonitorDiagnosticInterval(10);
+        runner = new MonitorDiagnosticRunner(configuration);
+        context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn(new FakeCommand());
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(FakeCommand.class, null));
+    }
+
+    @Test
+    public void testSleepingWithMonitor() {
+        final CommandRunnerChain chain = ctx -> {
+            synchronized (lock) {
+                sleep();
+            }
+            return null;
+        };
+        runner.execute(context, chain);
+
+        final MonitorDiagnosticRunner.MonitorStatistics statistics = runner.getStatistics().get(FakeCommand.class);
+        Assert.assertNotNull(statistics);
+        Assert.assertTrue(statistics.getWaitingWithMonitor() > 0);
+    }
+
+    @Test
+    public void testSleepingWithoutMonitor() {
+        final CommandRunnerChain chain = ctx -> {
+            sleep();
+            return null;
+        };
+        runner.execute(context, chain);
+
+        Assert.assertTrue(runner.getStatistics().isEmpty());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(300);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
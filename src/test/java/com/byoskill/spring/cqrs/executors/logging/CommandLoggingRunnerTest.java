@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.logging;
+
+import com.byoskill.spring.cqrs.annotations.LogPolicy;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.conf.DefaultLoggingConfiguration;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandLoggingRunnerTest {
+
+    static class CreateUser {
+        @Override
+        public String toString() {
+            return "CreateUser [name=" + new String(new char[5_000]).replace('\0', 'x') + "]";
+        }
+    }
+
+    @LogPolicy(failureInterval = 60_000)
+    static class ChargeCard {
+    }
+
+    @LogPolicy(sampleRate = 0)
+    static class Heartbeat {
+    }
+
+    private final DefaultLoggingConfiguration configuration = new DefaultLoggingConfiguration();
+
+    @Test
+    public void testAsyncRendering() {
+        final CommandLoggingRunner runner = new CommandLoggingRunner(configuration);
+        for (int i = 0; i < 10; i++) {
+            execute(runner, new CreateUser(), ctx -> CompletableFuture.completedFuture("OK"));
+        }
+        runner.shutdown();
+
+        Assert.assertEquals(20, runner.getWriter().getRenderedCount() + runner.getWriter().getDroppedCount());
+        Assert.assertEquals(0, runner.getWriter().getPendingCount());
+    }
+
+    @Test
+    public void testMdc() {
+        configuration.setLogBufferCapacity(0);
+        final CommandLoggingRunner runner = new CommandLoggingRunner(configuration);
+        final AtomicReference<String> asyncMdc = new AtomicReference<>();
+        execute(runner, new CreateUser(), ctx -> {
+            asyncMdc.set(MDC.get("command"));
+            return CompletableFuture.completedFuture("OK");
+        });
+        Assert.assertEquals(CreateUser.class.getName(), asyncMdc.get());
+        Assert.assertNull(MDC.get("command"));
+
+        final CommandExecutionContext context = context(new ChargeCard());
+        Assert.assertEquals(ChargeCard.class.getName(), runner.execute(context, ctx -> MDC.get("command")));
+        Assert.assertNull(MDC.get("command"));
+    }
+
+    @Test
+    public void testRepeatedFailures() {
+        configuration.setLogBufferCapacity(0);
+        final CommandLoggingRunner runner = new CommandLoggingRunner(configuration);
+        for (int i = 0; i < 5; i++) {
+            execute(runner, new ChargeCard(), ctx -> CompletionStages.failed(new IllegalStateException("declined")));
+        }
+
+        // 5 start records, the first failure, 4 failures suppressed
+        Assert.assertEquals(6, runner.getWriter().getRenderedCount());
+        Assert.assertEquals(4, runner.getPolicies().get(ChargeCard.class).getSuppressedFailures());
+    }
+
+    @Test
+    public void testSampling() {
+        configuration.setLogBufferCapacity(0);
+        final CommandLoggingRunner runner = new CommandLoggingRunner(configuration);
+        for (int i = 0; i < 10; i++) {
+            execute(runner, new Heartbeat(), ctx -> CompletableFuture.completedFuture("OK"));
+        }
+        Assert.assertEquals(0, runner.getWriter().getRenderedCount());
+
+        execute(runner, new Heartbeat(), ctx -> CompletionStages.failed(new IllegalStateException("down")));
+        // The failures are not sampled
+        Assert.assertEquals(1, runner.getWriter().getRenderedCount());
+    }
+
+    private CommandExecutionContext context(final Object command) {
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(command.getClass(), null));
+        when(context.getRawCommand()).thenReturn(command);
+        return context;
+    }
+
+    private void execute(final CommandLoggingRunner runner, final Object command,
+                         final AsyncCommandRunnerChain chain) {
+        runner.executeAsync(context(command), chain).toCompletableFuture().handle((res, failure) -> res).join();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.profiling;
+
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.conf.DefaultLoggingConfiguration;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandProfilingRunnerTest {
+
+    static class CreateUser {
+    }
+
+    private final DefaultLoggingConfiguration configuration = new DefaultLoggingConfiguration();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1_000; i++) {
+            recorder.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        // 2 significant digits : the values are within 1%
+        final LatencySnapshot snapshot = recorder.rotate();
+        Assert.assertEquals(1_000, snapshot.getCount());
+        Assert.assertEquals(500, snapshot.getP50(), 5);
+        Assert.assertEquals(900, snapshot.getP90(), 9);
+        Assert.assertEquals(990, snapshot.getP99(), 10);
+        Assert.assertEquals(999, snapshot.getP999(), 10);
+        Assert.assertEquals(1_000, snapshot.getMax(), 10);
+    }
+
+    @Test
+    public void testRotation() {
+        configuration.setProfilingInterval(0);
+        final CommandProfilingRunner runner = new CommandProfilingRunner(configuration, scheduler, executor);
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(CreateUser.class, null));
+        for (int i = 0; i < 100; i++) {
+            runner.executeAsync(context, ctx -> CompletableFuture.completedFuture("OK")).toCompletableFuture().join();
+        }
+
+        final LatencyRecorder recorder = runner.getRecorders().get(CreateUser.class);
+        Assert.assertEquals(0, recorder.getIntervalSnapshot().getCount());
+        runner.rotate();
+        Assert.assertEquals(100, recorder.getIntervalSnapshot().getCount());
+        runner.rotate();
+        Assert.assertEquals(0, recorder.getIntervalSnapshot().getCount());
+        Assert.assertEquals(100, recorder.getTotalSnapshot().getCount());
+    }
+
+    @Test
+    public void testPeriodicRotation() throws InterruptedException {
+        configuration.setProfilingInterval(10);
+        final AtomicInteger rotations = new AtomicInteger();
+        final CommandProfilingRunner runner = new CommandProfilingRunner(configuration, scheduler, task -> {
+            rotations.incrementAndGet();
+            executor.execute(task);
+        });
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(CreateUser.class, null));
+        runner.execute(context, ctx -> "OK");
+
+        final LatencyRecorder recorder = runner.getRecorders().get(CreateUser.class);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.getTotalSnapshot().getCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        runner.shutdown();
+        Assert.assertEquals(1, recorder.getTotalSnapshot().getCount());
+        // The rotations run on the executor, not on the scheduler thread
+        Assert.assertTrue(rotations.get() > 0);
+    }
+}
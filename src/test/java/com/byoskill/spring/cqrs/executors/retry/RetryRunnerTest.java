@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.retry;
+
+import com.byoskill.spring.cqrs.annotations.Retry;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.utils.concurrent.CompletionStages;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RetryRunnerTest {
+
+    @Retry(maxAttempts = 4, delay = 5, noRetryOn = IllegalArgumentException.class)
+    static class SendMail {
+    }
+
+    @Retry(maxAttempts = 10, delay = 1, budgetRatio = 0, budgetMinRetries = 2)
+    static class SendSms {
+    }
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "bulkhead"));
+
+    private final RetryRunner runner = new RetryRunner(scheduler);
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final AsyncCommandRunnerChain failing = ctx -> {
+            attempts.incrementAndGet();
+            return CompletionStages.failed(new IllegalStateException("sms gateway down"));
+        };
+
+        assertFails(execute(SendSms.class, failing), IllegalStateException.class);
+        Assert.assertEquals(3, attempts.get());
+        final RetryRunner.RetryStatistics statistics = runner.getStatistics().get(SendSms.class);
+        Assert.assertEquals(2, statistics.getRetries());
+        Assert.assertEquals(1, statistics.getBudget().getRejectedCount());
+    }
+
+    @Test
+    public void testNoRetryOn() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        assertFails(execute(SendMail.class, ctx -> {
+            attempts.incrementAndGet();
+            return CompletionStages.failed(new IllegalArgumentException("invalid address"));
+        }), IllegalArgumentException.class);
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testRetryOnCommandExecutor() throws Exception {
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Object> result = execute(SendMail.class, ctx -> {
+            threads.add(Thread.currentThread().getName());
+            return threads.size() < 3 ? CompletionStages.failed(new IllegalStateException("smtp down"))
+                    : CompletableFuture.completedFuture("SENT");
+        });
+
+        Assert.assertEquals("SENT", result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("bulkhead", "bulkhead"), threads.subList(1, 3));
+    }
+
+    @Test
+    public void testRetryRejectedByScheduler() throws Exception {
+        scheduler.shutdown();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertFails(execute(SendMail.class, ctx -> {
+            attempts.incrementAndGet();
+            return CompletionStages.failed(new IllegalStateException("smtp down"));
+        }), IllegalStateException.class);
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final CompletableFuture<Object> result = execute(SendMail.class, ctx -> attempts.incrementAndGet() < 3
+                ? CompletionStages.failed(new IllegalStateException("smtp down"))
+                : CompletableFuture.completedFuture("SENT"));
+
+        Assert.assertEquals("SENT", result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+        Assert.assertEquals(2, runner.getStatistics().get(SendMail.class).getRetries());
+    }
+
+    private void assertFails(final CompletableFuture<Object> result, final Class<? extends Exception> expected)
+            throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            Assert.fail("The command should have failed");
+        } catch (final ExecutionException e) {
+            Assert.assertEquals(expected, e.getCause().getClass());
+        }
+    }
+
+    private CompletableFuture<Object> execute(final Class<?> commandType, final AsyncCommandRunnerChain chain) {
+        final CommandTypeDescriptor descriptor = new CommandTypeDescriptor(commandType, null);
+        Assert.assertTrue(runner.isApplicable(descriptor));
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getDescriptor()).thenReturn(descriptor);
+        when(context.getExecutor()).thenReturn(executor);
+        return runner.executeAsync(context, chain).toCompletableFuture();
+    }
+}
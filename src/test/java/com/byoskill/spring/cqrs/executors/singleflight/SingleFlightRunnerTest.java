@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.singleflight;
+
+import com.byoskill.spring.cqrs.annotations.SingleFlight;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SingleFlightRunnerTest {
+
+    @SingleFlight(key = FindUserKey.class)
+    static class FindUser {
+        private final String name;
+        private final long timestamp;
+
+        FindUser(final String name, final long timestamp) {
+            this.name = name;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public static class FindUserKey implements Function<FindUser, String> {
+        @Override
+        public String apply(final FindUser command) {
+            return command.name;
+        }
+    }
+
+    private final SingleFlightRunner runner = new SingleFlightRunner();
+
+    private final CommandTypeDescriptor descriptor = new CommandTypeDescriptor(FindUser.class, null);
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final CommandRunnerChain chain = ctx -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "USER";
+        };
+
+        final CompletableFuture<Object> first = CompletableFuture
+                .supplyAsync(() -> runner.execute(context(new FindUser("john", 1)), chain));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<Object> second = CompletableFuture
+                .supplyAsync(() -> runner.execute(context(new FindUser("john", 2)), chain));
+        while (runner.getStatistics().get(FindUser.class).getMerged() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        Assert.assertEquals("USER", first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("USER", second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals(1, runner.getStatistics().get(FindUser.class).getExecutions());
+    }
+
+    @Test
+    public void testErrorShared() throws Exception {
+        assertFailureShared(new Error("directory down"));
+    }
+
+    @Test
+    public void testFailureShared() throws Exception {
+        assertFailureShared(new IllegalStateException("directory down"));
+    }
+
+    @Test
+    public void testSynchronousFailureAsync() throws Exception {
+        final CompletableFuture<Object> failed = runner.executeAsync(context(new FindUser("john", 1)), ctx -> {
+            throw new IllegalStateException("directory down");
+        }).toCompletableFuture();
+        Assert.assertTrue(failure(failed) instanceof IllegalStateException);
+
+        // The flight has been released, the next command is not merged into it
+        Assert.assertEquals("USER", runner.executeAsync(context(new FindUser("john", 2)),
+                ctx -> CompletableFuture.completedFuture("USER")).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, runner.getStatistics().get(FindUser.class).getMerged());
+    }
+
+    @Test
+    public void testSequentialExecutions() {
+        final AtomicInteger executions = new AtomicInteger();
+        final CommandRunnerChain chain = ctx -> executions.incrementAndGet();
+
+        runner.execute(context(new FindUser("john", 1)), chain);
+        runner.execute(context(new FindUser("john", 2)), chain);
+
+        Assert.assertEquals(2, executions.get());
+        Assert.assertEquals(0, runner.getStatistics().get(FindUser.class).getMerged());
+    }
+
+    private CommandExecutionContext context(final FindUser command) {
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn(command);
+        when(context.getDescriptor()).thenReturn(descriptor);
+        return context;
+    }
+
+    private void assertFailureShared(final Throwable failure) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final CommandRunnerChain chain = ctx -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        };
+
+        final CompletableFuture<Object> first = CompletableFuture
+                .supplyAsync(() -> runner.execute(context(new FindUser("john", 1)), chain));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The follower must throw the failure itself, not a wrapping CompletionException
+        final CompletableFuture<Throwable> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                runner.execute(context(new FindUser("john", 2)), chain);
+                return null;
+            } catch (final RuntimeException | Error e) {
+                return e;
+            }
+        });
+        while (runner.getStatistics().get(FindUser.class).getMerged() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        Assert.assertSame(failure, failure(first));
+        Assert.assertSame(failure, second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executions.get());
+
+        // The failure is not kept, the next command is executed
+        Assert.assertEquals("USER", runner.execute(context(new FindUser("john", 3)), ctx -> "USER"));
+    }
+
+    private static Throwable failure(final CompletableFuture<Object> result) throws Exception {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            Assert.fail("The command should have failed");
+            return null;
+        } catch (final ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.throttling;
+
+import com.byoskill.spring.cqrs.annotations.Throttle;
+import com.byoskill.spring.cqrs.api.RateLimit;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.gate.conf.RateLimiterRegistry;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandThrottlingRunnerTest {
+
+    @Throttle(value = "limited", timeOut = 10)
+    static class FakeCommand {
+    }
+
+    private CommandExecutionContext context;
+
+    private RateLimiterRegistry registry;
+
+    private CommandThrottlingRunner runner;
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+    }
+
+    @Before
+    public void before() {
+        registry = new RateLimiterRegistry(Runnable::run, scheduler);
+        registry.register("limited", new RateLimit(1));
+        runner = new CommandThrottlingRunner(registry);
+        context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn(new FakeCommand());
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(FakeCommand.class, null));
+    }
+
+    @Test
+    public void testTimeOutRejectsAsync() throws Exception {
+        final CompletableFuture<Object> first = runner
+                .executeAsync(context, ctx -> CompletableFuture.completedFuture("RESULT")).toCompletableFuture();
+        Assert.assertEquals("RESULT", first.get(1, TimeUnit.SECONDS));
+
+        final CompletableFuture<Object> second = runner.executeAsync(context, ctx -> {
+            throw new IllegalStateException("The command should not be executed");
+        }).toCompletableFuture();
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            Assert.fail("The command should have been rejected");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof CommandRejectedException);
+        }
+    }
+
+    @Test
+    public void testTimeOutRejectsSync() {
+        Assert.assertEquals("RESULT", runner.execute(context, ctx -> "RESULT"));
+        try {
+            runner.execute(context, ctx -> {
+                throw new IllegalStateException("The command should not be executed");
+            });
+            Assert.fail("The command should have been rejected");
+        } catch (final CommandRejectedException e) {
+            Assert.assertEquals(1, registry.getRateLimiters().get("limited").getRejectedCount());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.executors.timeout;
+
+import com.byoskill.spring.cqrs.annotations.CommandOptions;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.gate.api.CommandTimeoutException;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandTimeoutRunnerTest {
+
+    @CommandOptions(timeOut = 50)
+    static class FakeCommand {
+    }
+
+    static class FakeCommandWithoutTimeOut {
+    }
+
+    private CommandExecutionContext context;
+
+    private CommandTimeoutRunner runner;
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+    }
+
+    @Before
+    public void before() {
+        runner = new CommandTimeoutRunner(scheduler);
+        context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn(new FakeCommand());
+        when(context.getDescriptor()).thenReturn(new CommandTypeDescriptor(FakeCommand.class, null));
+    }
+
+    @Test
+    public void testApplicable() {
+        Assert.assertTrue(runner.isApplicable(new CommandTypeDescriptor(FakeCommand.class, null)));
+        Assert.assertFalse(runner.isApplicable(new CommandTypeDescriptor(FakeCommandWithoutTimeOut.class, null)));
+    }
+
+    @Test
+    public void testInTime() {
+        final CommandRunnerChain chain = ctx -> "RESULT";
+        Assert.assertEquals("RESULT", runner.execute(context, chain));
+    }
+
+    @Test
+    public void testTimeOut() {
+        final CommandRunnerChain chain = ctx -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException("Interrupted", e);
+            }
+            return null;
+        };
+        final long start = System.currentTimeMillis();
+        try {
+            runner.execute(context, chain);
+            Assert.fail("The command should have timed out");
+        } catch (final CommandTimeoutException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 5_000);
+        Assert.assertFalse("The interruption must not leak", Thread.currentThread().isInterrupted());
+    }
+}
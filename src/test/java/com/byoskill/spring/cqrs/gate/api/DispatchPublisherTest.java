@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.api;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DispatchPublisherTest {
+
+    /**
+     * Publishes a list of commands on demand.
+     */
+    private static class ListPublisher implements Publisher<Object> {
+
+        private volatile boolean cancelled;
+
+        private final List<Integer> commands;
+
+        private final AtomicLong totalRequested = new AtomicLong();
+
+        ListPublisher(final Integer... commands) {
+            this.commands = Arrays.asList(commands);
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super Object> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private boolean completed;
+                private long demand;
+                private boolean emitting;
+                private int index;
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                    completed = true;
+                }
+
+                @Override
+                public synchronized void request(final long n) {
+                    totalRequested.addAndGet(n);
+                    demand += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && index < commands.size() && !completed) {
+                        --demand;
+                        subscriber.onNext(commands.get(index++));
+                    }
+                    if (index == commands.size() && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Collects the results.
+     */
+    private static class ResultSubscriber implements Subscriber<Integer> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Throwable error;
+
+        private final long initialRequest;
+
+        private final List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+
+        private Subscription subscription;
+
+        ResultSubscriber(final long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onNext(final Integer result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private Gate gate;
+
+    @Before
+    public void before() {
+        gate = mock(Gate.class);
+        when(gate.dispatchAsync(any(), eq(Integer.class))).thenAnswer(invocation -> {
+            final Integer command = (Integer) invocation.getArguments()[0];
+            // The first commands are the slowest
+            return CompletableFuture.supplyAsync(() -> {
+                sleep((5 - command) * 20);
+                return command * 10;
+            });
+        });
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        when(gate.dispatchAsync(any(), eq(Integer.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArguments()[0]));
+        final ListPublisher commands = new ListPublisher(1, 2, 3, 4, 5);
+        final ResultSubscriber subscriber = new ResultSubscriber(0);
+
+        new DispatchPublisher<>(gate, commands, Integer.class, 2, true).subscribe(subscriber);
+        assertEquals(2, commands.totalRequested.get());
+        assertEquals(0, subscriber.results.size());
+
+        subscriber.subscription.request(1);
+        assertEquals(Collections.singletonList(1), subscriber.results);
+        assertEquals(3, commands.totalRequested.get());
+
+        subscriber.subscription.request(10);
+        subscriber.await();
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), subscriber.results);
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+        final IllegalStateException failure = new IllegalStateException();
+        when(gate.dispatchAsync(eq(3), eq(Integer.class))).thenAnswer(invocation -> {
+            final CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(failure);
+            return future;
+        });
+        final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+
+        new DispatchPublisher<>(gate, new ListPublisher(1, 2, 3, 4, 5), Integer.class, 2, true)
+                .subscribe(subscriber);
+        subscriber.await();
+        assertEquals(failure, subscriber.error);
+    }
+
+    @Test
+    public void testInvalidRequest() throws InterruptedException {
+        final ListPublisher commands = new ListPublisher(1, 2, 3);
+        final ResultSubscriber subscriber = new ResultSubscriber(0);
+
+        new DispatchPublisher<>(gate, commands, Integer.class, 2, true).subscribe(subscriber);
+        subscriber.subscription.request(0);
+        subscriber.await();
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(commands.cancelled);
+    }
+
+    @Test
+    public void testOrdered() throws InterruptedException {
+        final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+
+        new DispatchPublisher<>(gate, new ListPublisher(1, 2, 3, 4, 5), Integer.class, 3, true)
+                .subscribe(subscriber);
+        subscriber.await();
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), subscriber.results);
+    }
+
+    @Test
+    public void testUnordered() throws InterruptedException {
+        final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+
+        new DispatchPublisher<>(gate, new ListPublisher(1, 2, 3, 4, 5), Integer.class, 5, false)
+                .subscribe(subscriber);
+        subscriber.await();
+        assertEquals(Integer.valueOf(50), subscriber.results.get(0));
+        final List<Integer> results = new ArrayList<>(subscriber.results);
+        Collections.sort(results);
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), results);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
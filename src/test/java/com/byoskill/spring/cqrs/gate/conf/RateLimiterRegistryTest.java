@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.conf;
+
+import com.byoskill.spring.cqrs.api.RateLimit;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterRegistryTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "permits"));
+
+    private final TimeoutScheduler scheduler = new TimeoutScheduler();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testAsyncPermitGrantedOnExecutor() throws Exception {
+        final RateLimiterRegistry registry = new RateLimiterRegistry(executor, scheduler);
+        registry.register("limited", new RateLimit(20));
+        registry.acquirePermit("limited");
+
+        final CompletableFuture<String> grantingThread = registry.acquirePermitAsync("limited")
+                .toCompletableFuture().thenApply(permit -> Thread.currentThread().getName());
+
+        assertEquals("permits", grantingThread.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncPermitRejectedByExecutor() throws Exception {
+        final RateLimiterRegistry registry = new RateLimiterRegistry(executor, scheduler);
+        registry.register("limited", new RateLimit(20));
+        registry.acquirePermit("limited");
+        executor.shutdown();
+
+        try {
+            registry.acquirePermitAsync("limited").toCompletableFuture().get(1, TimeUnit.SECONDS);
+            fail("The permit should have been rejected");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof CommandRejectedException);
+        }
+    }
+
+    @Test
+    public void testDefaultRateLimit() {
+        final RateLimiterRegistry registry = new RateLimiterRegistry(executor, scheduler);
+        assertTrue(registry.tryAcquirePermit("unknown", 0, TimeUnit.MILLISECONDS));
+        assertNull(registry.getRateLimiters().get("unknown"));
+
+        registry.setDefaultRateLimit(new RateLimit(1));
+        assertTrue(registry.tryAcquirePermit("other", 0, TimeUnit.MILLISECONDS));
+        assertFalse(registry.tryAcquirePermit("other", 0, TimeUnit.MILLISECONDS));
+        assertNotNull(registry.getRateLimiters().get("other"));
+    }
+
+    @Test
+    public void testSharedSchedulerNotStopped() throws Exception {
+        final RateLimiterRegistry registry = new RateLimiterRegistry(executor, scheduler);
+        registry.shutdown();
+
+        final CountDownLatch scheduled = new CountDownLatch(1);
+        scheduler.schedule(scheduled::countDown, 1);
+        assertTrue(scheduled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeOutExpired() throws Exception {
+        final RateLimiterRegistry registry = new RateLimiterRegistry(executor, scheduler);
+        registry.register("limited", new RateLimit(1));
+        registry.acquirePermit("limited");
+
+        assertFalse(registry.tryAcquirePermitAsync("limited", 10, TimeUnit.MILLISECONDS).toCompletableFuture()
+                .get(1, TimeUnit.SECONDS));
+        assertFalse(registry.tryAcquirePermit("limited", 10, TimeUnit.MILLISECONDS));
+        assertEquals(2, registry.getRateLimiters().get("limited").getRejectedCount());
+    }
+}
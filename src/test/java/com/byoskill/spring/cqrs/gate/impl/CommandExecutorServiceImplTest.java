@@ -10,9 +10,16 @@
  */
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.annotations.CommandKey;
+import com.byoskill.spring.cqrs.annotations.CommandOptions;
+import com.byoskill.spring.cqrs.api.AsyncCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
 import com.byoskill.spring.cqrs.api.CommandServiceProvider;
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
 import com.byoskill.spring.cqrs.gate.conf.DefaultLoggingConfiguration;
+import com.byoskill.spring.cqrs.gate.api.CommandTimeoutException;
+import com.byoskill.spring.cqrs.utils.concurrent.TimeoutScheduler;
 import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
 import com.byoskill.spring.cqrs.workflow.impl.CommandRunnerWorkflow;
 import com.byoskill.spring.cqrs.workflow.impl.CommandRunnerWorkflowService;
@@ -23,17 +30,47 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import javax.validation.Validation;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class CommandExecutorServiceImplTest {
 
+    @CommandOptions(bulkhead = "reports", maxConcurrency = 1)
+    private static class ReportCommand {
+    }
+
+    private static class DepositCommand {
+        @CommandKey
+        private final String account;
+
+        private final int index;
+
+        DepositCommand(final String account, final int index) {
+            this.account = account;
+            this.index = index;
+        }
+    }
+
+    @CommandOptions(timeOut = 100)
+    private static class SlowCommand {
+    }
+
     private static class InvalidObject {
         @NotNull
         String str;
@@ -66,7 +103,7 @@ public class CommandExecutorServiceImplTest {
         workflowService = mock(CommandRunnerWorkflowService.class);
         tpool = new ThreadPoolTaskExecutor();
         service = new CommandExecutorServiceImpl(configuration, handlersProvider, validator, workflowService,
-                ForkJoinPool.commonPool());
+                ForkJoinPool.commonPool(), new DefaultExecutionConfiguration(), new TimeoutScheduler());
 
         when(workflowService.getRunnerWorkflow()).thenReturn(new CommandRunnerWorkflow());
 
@@ -83,6 +120,113 @@ public class CommandExecutorServiceImplTest {
         assertEquals("SALUT LA TERRE", service.run(COMMAND, String.class).join());
     }
 
+    @Test
+    public final void testRun_chainCompiledOncePerType() {
+        configuration.setProfilingEnabled(false);
+        Mockito.when(handlersProvider.getService(COMMAND))
+                .thenReturn((CommandServiceSpec<String, String>) command -> command + " LA TERRE");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("SALUT LA TERRE", service.run(COMMAND, String.class).join());
+        }
+        Mockito.verify(workflowService, Mockito.times(1)).getRunnerWorkflow();
+    }
+
+    @Test
+    public final void testRun_asyncHandler() {
+        configuration.setProfilingEnabled(false);
+        final CompletableFuture<String> io = new CompletableFuture<>();
+        Mockito.when(handlersProvider.getService(COMMAND))
+                .thenReturn((AsyncCommandServiceSpec<String, String>) command -> io);
+
+        final CompletableFuture<String> result = service.run(COMMAND, String.class);
+        assertTrue(!result.isDone());
+        assertEquals(1, service.getAdmissionExecutor().getActiveCount());
+        io.complete("SALUT LA TERRE");
+        assertEquals("SALUT LA TERRE", result.join());
+        assertEquals(0, service.getAdmissionExecutor().getActiveCount());
+    }
+
+    @Test
+    public final void testExecute_asyncHandler() {
+        configuration.setProfilingEnabled(false);
+        Mockito.when(handlersProvider.getService(COMMAND))
+                .thenReturn((AsyncCommandServiceSpec<String, String>) command -> CompletableFuture
+                        .supplyAsync(() -> command + " LA TERRE"));
+
+        assertEquals("SALUT LA TERRE", service.execute(COMMAND, String.class));
+    }
+
+    @Test
+    public final void testRun_bulkhead() {
+        configuration.setProfilingEnabled(false);
+        final ReportCommand command = new ReportCommand();
+        Mockito.when(handlersProvider.getService(command))
+                .thenReturn((CommandServiceSpec<ReportCommand, String>) cmd -> Thread.currentThread().getName());
+
+        assertTrue(service.run(command, String.class).join().startsWith("cqrs-bulkhead-reports-"));
+        assertEquals(1, service.getBulkheads().get("reports").getAdmissionExecutor().getSubmittedCount());
+        service.destroy();
+    }
+
+    @Test
+    public final void testRun_commandKey() {
+        configuration.setProfilingEnabled(false);
+        final AtomicInteger running = new AtomicInteger();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final DepositCommand command = new DepositCommand("ACCOUNT", i);
+            Mockito.when(handlersProvider.getService(command))
+                    .thenReturn((CommandServiceSpec<DepositCommand, Integer>) cmd -> {
+                        final int concurrent = running.incrementAndGet();
+                        LockSupport.parkNanos(100_000L);
+                        running.decrementAndGet();
+                        return concurrent == 1 ? cmd.index : -1;
+                    });
+            futures.add(service.run(command, Integer.class));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, futures.get(i).join().intValue());
+        }
+        assertEquals(0, service.getPartitions().getActiveKeyCount());
+    }
+
+    @Test
+    public final void testRun_timeOut() throws InterruptedException {
+        configuration.setProfilingEnabled(false);
+        final SlowCommand command = new SlowCommand();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Mockito.when(handlersProvider.getService(command))
+                .thenReturn((CommandServiceSpec<SlowCommand, String>) cmd -> {
+                    // Ignores the interruptions
+                    while (latch.getCount() > 0) {
+                        LockSupport.parkNanos(1_000_000L);
+                    }
+                    return "TOO LATE";
+                });
+
+        try {
+            service.run(command, String.class).get();
+            fail("The command should have timed out");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof CommandTimeoutException);
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public final void testRunBatch() {
+        configuration.setProfilingEnabled(false);
+        Mockito.when(handlersProvider.getService("A"))
+                .thenReturn((BatchCommandServiceSpec<String, String>) commands -> commands.stream()
+                        .map(command -> command + " LA TERRE").collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList("A LA TERRE", "B LA TERRE"),
+                service.runBatch(Arrays.asList("A", "B"), String.class).join());
+    }
+
     @Test(expected = CompletionException.class)
     public final void testRun_invalid_command() {
         configuration.setProfilingEnabled(false);
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.gate.impl;
+
+import com.byoskill.spring.cqrs.api.CqrsConfiguration;
+import com.byoskill.spring.cqrs.api.LoggingConfiguration;
+import com.byoskill.spring.cqrs.api.ThrottlingInterface;
+import com.byoskill.spring.cqrs.api.TraceConfiguration;
+import com.byoskill.spring.cqrs.gate.api.Gate;
+import com.byoskill.spring.cqrs.gate.conf.DefaultLoggingConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.DefaultThrottlingInterface;
+import com.byoskill.spring.cqrs.gate.conf.DefaultTraceConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.ImportCqrsInjectionConfiguration;
+import com.byoskill.spring.cqrs.gate.conf.ImportGuavaAsyncEventBusConfiguration;
+import com.byoskill.spring.cqrs.gate.impl.fakeapp.TestConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the module with a configuration declaring no execution configuration.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, LegacyConfigurationTest.LegacyCqrsConfiguration.class,
+        ImportGuavaAsyncEventBusConfiguration.class, ImportCqrsInjectionConfiguration.class,
+        CommandServicePostProcessor.class})
+public class LegacyConfigurationTest {
+
+    @Configuration
+    static class LegacyCqrsConfiguration implements CqrsConfiguration {
+
+        @Bean
+        @Override
+        public ForkJoinPool getCommandExecutor() {
+            return new ForkJoinPool();
+        }
+
+        @Bean
+        @Override
+        public LoggingConfiguration getLoggingConfiguration() {
+            return new DefaultLoggingConfiguration();
+        }
+
+        @Bean
+        @Override
+        public ThrottlingInterface getThrottlingInterface() {
+            return new DefaultThrottlingInterface();
+        }
+
+        @Bean
+        @Override
+        public TraceConfiguration getTraceConfiguration() {
+            return new DefaultTraceConfiguration();
+        }
+    }
+
+    @Autowired
+    private Gate springGate;
+
+    @Test
+    public void testDefaultExecutionConfiguration() throws Exception {
+        springGate.dispatch("A");
+        Assert.assertNotNull(springGate.dispatchAsync("D").get(3, TimeUnit.SECONDS));
+    }
+}
@@ -1,5 +1,7 @@
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.api.DefaultExecutionConfiguration;
+import com.byoskill.spring.cqrs.api.DispatchMode;
 import com.byoskill.spring.cqrs.gate.api.EventBusService;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,9 +10,12 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,11 +31,13 @@ public class SpringGateTest {
 
     private final Optional<SpringGateFilters> spg = Optional.empty();
 
+    private final DefaultExecutionConfiguration executionConfiguration = new DefaultExecutionConfiguration();
+
     private SpringGate springGate;
 
     @Before
     public void before() {
-        springGate = new SpringGate(commandExecutorServiceImpl, eventBus, spg);
+        springGate = new SpringGate(commandExecutorServiceImpl, eventBus, spg, executionConfiguration);
     }
 
     @Test
@@ -41,6 +48,28 @@ public class SpringGateTest {
         verify(commandExecutorServiceImpl, Mockito.times(1)).run(COMMAND, Object.class);
     }
 
+    @Test
+    public void testDispatch_callerThread() throws Exception {
+        executionConfiguration.setDispatchMode(DispatchMode.CALLER_THREAD);
+        when(commandExecutorServiceImpl.execute(COMMAND, String.class)).thenReturn("RESULT");
+        springGate.dispatch(COMMAND, String.class);
+        verify(commandExecutorServiceImpl, Mockito.times(1)).execute(COMMAND, String.class);
+        verify(commandExecutorServiceImpl, Mockito.never()).run(COMMAND, String.class);
+    }
+
+    @Test
+    public void testDispatchAll_batch() throws Exception {
+        when(commandExecutorServiceImpl.isBatchHandled("A")).thenReturn(true);
+        when(commandExecutorServiceImpl.runBatch(Arrays.asList("A", "B"), Object.class))
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList("RA", "RB")));
+        when(commandExecutorServiceImpl.run(1, Object.class)).thenReturn(CompletableFuture.completedFuture("R1"));
+
+        final List<Object> results = springGate.dispatchAll(Arrays.asList("A", 1, "B"), Object.class);
+
+        assertEquals(Arrays.asList("RA", "R1", "RB"), results);
+        verify(commandExecutorServiceImpl, Mockito.never()).run("A", Object.class);
+    }
+
     @Test
     public void testDispatchAsync() throws Exception {
         when(commandExecutorServiceImpl.run(COMMAND, Object.class))
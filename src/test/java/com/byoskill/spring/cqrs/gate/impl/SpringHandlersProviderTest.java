@@ -1,6 +1,9 @@
 package com.byoskill.spring.cqrs.gate.impl;
 
+import com.byoskill.spring.cqrs.api.AsyncCommandServiceSpec;
+import com.byoskill.spring.cqrs.api.BatchCommandServiceSpec;
 import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.gate.api.CommandHandlerNotFoundException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -9,7 +12,12 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SpringHandlersProviderTest {
@@ -22,6 +30,24 @@ public class SpringHandlersProviderTest {
 
     }
 
+    public static class FakeBatchCommandHandler implements BatchCommandServiceSpec<Integer, Integer> {
+
+        @Override
+        public List<Integer> handleAll(final List<Integer> _commands) {
+            return _commands;
+        }
+
+    }
+
+    public static class FakeAsyncCommandHandler implements AsyncCommandServiceSpec<Long, Long> {
+
+        @Override
+        public CompletableFuture<Long> handleAsync(final Long _command) {
+            return CompletableFuture.completedFuture(_command);
+        }
+
+    }
+
     private static final String BEAN = "BEAN";
 
     @Mock
@@ -46,4 +72,43 @@ public class SpringHandlersProviderTest {
         assertNotNull(springHandlersProvider.getService("COMMAND_AS_STRING"));
     }
 
+    @Test
+    public void testGetService_singletonResolvedOnce() throws Exception {
+        final FakeCommandHandler handler = new FakeCommandHandler();
+        springHandlersProvider.putCommand(handler, BEAN);
+        Mockito.when(beanFactory.isSingleton(BEAN)).thenReturn(true);
+        Mockito.when(beanFactory.getBean(BEAN)).thenReturn(handler);
+
+        springHandlersProvider.refreshDispatchTable();
+        for (int i = 0; i < 10; i++) {
+            assertSame(handler, springHandlersProvider.getService("COMMAND_AS_STRING"));
+        }
+        assertEquals(FakeCommandHandler.class, springHandlersProvider.getServiceTargetClass("COMMAND"));
+        Mockito.verify(beanFactory, Mockito.times(1)).getBean(BEAN);
+    }
+
+    @Test
+    public void testGetService_batchHandler() throws Exception {
+        final FakeBatchCommandHandler handler = new FakeBatchCommandHandler();
+        springHandlersProvider.putCommand(handler, BEAN);
+        Mockito.when(beanFactory.getBean(BEAN)).thenReturn(handler);
+
+        assertSame(handler, springHandlersProvider.getService(12));
+    }
+
+    @Test
+    public void testGetService_asyncHandler() throws Exception {
+        final FakeAsyncCommandHandler handler = new FakeAsyncCommandHandler();
+        springHandlersProvider.putCommand(handler, BEAN);
+        Mockito.when(beanFactory.getBean(BEAN)).thenReturn(handler);
+
+        assertSame(handler, springHandlersProvider.getService(12L));
+    }
+
+    @Test(expected = CommandHandlerNotFoundException.class)
+    public void testGetService_unknownCommand() throws Exception {
+        springHandlersProvider.refreshDispatchTable();
+        springHandlersProvider.getService(12);
+    }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.gate.api.CircuitBreakerOpenException;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveLimiterTest {
+
+    private static void run(final AdaptiveLimiter limiter, final long latency) {
+        final CompletableFuture<String> io = new CompletableFuture<>();
+        final CompletableFuture<String> result = limiter.submit(() -> io);
+        LockSupport.parkNanos(latency);
+        io.complete("DONE");
+        result.join();
+    }
+
+    @Test
+    public void testLimitDecreasesWithLatency() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 100, 0);
+        for (int i = 0; i < 30; i++) {
+            run(limiter, 1_000_000L);
+        }
+        assertEquals(10, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            run(limiter, 20_000_000L);
+        }
+        assertTrue(limiter.getLimit() < 10);
+        assertTrue(limiter.getRtt() > limiter.getRttNoLoad());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testQueueAndReject() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final AtomicBoolean secondStarted = new AtomicBoolean();
+        final CompletableFuture<String> firstResult = limiter.submit(() -> first);
+        final CompletableFuture<String> secondResult = limiter.submit(() -> {
+            secondStarted.set(true);
+            return CompletableFuture.completedFuture("SECOND");
+        });
+        try {
+            limiter.submit(() -> CompletableFuture.completedFuture("THIRD")).join();
+            fail("The third task should have been rejected");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof CommandRejectedException);
+        }
+        assertFalse(secondStarted.get());
+        assertEquals(1, limiter.getQueueSize());
+
+        first.complete("FIRST");
+        assertEquals("FIRST", firstResult.join());
+        assertEquals("SECOND", secondResult.join());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRejectedTasksNotSampled() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 100, 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.submit(() -> CompletionStages.failed(new CircuitBreakerOpenException("open")))
+                    .handle((value, failure) -> failure).join();
+        }
+        assertEquals(0, limiter.getRtt());
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        run(limiter, 1_000_000L);
+        assertTrue(limiter.getRtt() > 0);
+    }
+
+    @Test
+    public void testWaitingTaskStartedOnExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "command-executor"));
+        try {
+            final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+            final CompletableFuture<String> first = new CompletableFuture<>();
+            limiter.submit(() -> first, executor);
+            final CompletableFuture<String> second = limiter.submit(
+                    () -> CompletableFuture.completedFuture(Thread.currentThread().getName()), executor);
+
+            first.complete("FIRST");
+            assertEquals("command-executor", second.get(5, TimeUnit.SECONDS));
+
+            final CompletableFuture<String> third = new CompletableFuture<>();
+            limiter.submit(() -> third, executor);
+            final CompletableFuture<String> rejected = limiter.submit(() -> CompletableFuture.completedFuture(""),
+                    executor);
+            executor.shutdown();
+            third.complete("THIRD");
+            try {
+                rejected.join();
+                fail("The waiting task should have been rejected by the executor");
+            } catch (final CompletionException e) {
+                assertTrue(e.getCause() instanceof CommandRejectedException);
+            }
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
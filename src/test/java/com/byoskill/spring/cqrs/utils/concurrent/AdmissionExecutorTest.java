@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.api.OverflowPolicy;
+import com.byoskill.spring.cqrs.gate.api.CommandOverloadedException;
+import com.byoskill.spring.cqrs.gate.api.CommandRejectedException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdmissionExecutorTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    @After
+    public void after() {
+        latch.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 0, OverflowPolicy.BLOCK);
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<CompletableFuture<String>> second = CompletableFuture
+                .supplyAsync(() -> admission.supply("second", () -> "second"));
+
+        Thread.sleep(100);
+        assertTrue(!second.isDone());
+        latch.countDown();
+        assertEquals("first", first.join());
+        assertEquals("second", second.get(1, TimeUnit.SECONDS).join());
+    }
+
+    @Test
+    public void testCallerRuns() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 0,
+                OverflowPolicy.CALLER_RUNS);
+        admission.supply("first", this::await);
+        final Thread caller = Thread.currentThread();
+
+        assertEquals(caller, admission.supply("second", Thread::currentThread).join());
+        assertEquals(1, admission.getCallerRunsCount());
+    }
+
+    @Test
+    public void testDropOldest() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 1,
+                OverflowPolicy.DROP_OLDEST);
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<String> second = admission.supply("second", () -> "second");
+        final CompletableFuture<String> third = admission.supply("third", () -> "third");
+
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(1, admission.getDroppedCount());
+        assertEquals(1, admission.getQueueDepth());
+        latch.countDown();
+        assertEquals("first", first.join());
+        assertEquals("third", third.join());
+    }
+
+    @Test
+    public void testPriority() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10, OverflowPolicy.REJECT,
+                60_000);
+        final List<String> executed = new CopyOnWriteArrayList<>();
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<Boolean> batch = admission.supply("batch", -1, null, () -> executed.add("batch"));
+        admission.supply("late", 1, Duration.ofSeconds(30), () -> executed.add("late"));
+        admission.supply("default", () -> executed.add("default"));
+        final CompletableFuture<Boolean> last = admission.supply("urgent", 1, Duration.ofSeconds(10),
+                () -> executed.add("urgent"));
+
+        latch.countDown();
+        assertEquals("first", first.join());
+        last.join();
+        batch.join();
+        assertEquals(asList("urgent", "late", "default", "batch"), executed);
+        assertEquals(2, admission.getQueueWaitHistograms().get(1).getTotalCount());
+        assertEquals(1, admission.getQueueWaitHistograms().get(-1).getTotalCount());
+    }
+
+    @Test
+    public void testOverloadShedding() throws Exception {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10, OverflowPolicy.REJECT,
+                1_000, new CoDelController(10, 50));
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<String> stale = admission.supply("stale", () -> "stale");
+        Thread.sleep(100);
+
+        latch.countDown();
+        assertEquals("first", first.join());
+        try {
+            stale.join();
+            fail("The stale command should have been shed");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof CommandOverloadedException);
+        }
+        assertEquals("fresh", admission.supply("fresh", () -> "fresh").join());
+        assertEquals(1, admission.getShedCount());
+    }
+
+    @Test
+    public void testAging() throws Exception {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10, OverflowPolicy.REJECT,
+                50);
+        final List<String> executed = new CopyOnWriteArrayList<>();
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        admission.supply("old", () -> executed.add("old"));
+        Thread.sleep(150);
+        admission.supply("new", 1, null, () -> executed.add("new"));
+
+        latch.countDown();
+        assertEquals("first", first.join());
+        admission.supply("sync", () -> true).join();
+        assertEquals(asList("old", "new"), executed);
+    }
+
+    @Test
+    public void testExpiredDeadline() throws Exception {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10, OverflowPolicy.REJECT);
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<String> expired = admission.supply("expired", 0, Duration.ofMillis(10),
+                () -> "expired");
+        Thread.sleep(50);
+
+        latch.countDown();
+        assertEquals("first", first.join());
+        try {
+            expired.join();
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof CommandRejectedException);
+            assertEquals(1, admission.getExpiredCount());
+            return;
+        }
+        throw new AssertionError("The command should have expired");
+    }
+
+    @Test
+    public void testExpiredDeadlineWhileWaiting() throws Exception {
+        final TimeoutScheduler scheduler = new TimeoutScheduler();
+        try {
+            final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10,
+                    OverflowPolicy.REJECT, 1_000, null, scheduler);
+            admission.supply("first", this::await);
+            final CompletableFuture<String> expired = admission.supply("expired", 0, Duration.ofMillis(20),
+                    () -> "expired");
+
+            // Fails at its deadline, while the first command still holds the slot
+            try {
+                expired.get(1, TimeUnit.SECONDS);
+                fail("The command should have expired");
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof CommandRejectedException);
+            }
+            assertEquals(0, admission.getQueueDepth());
+            assertEquals(1, admission.getExpiredCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueued() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 10, OverflowPolicy.REJECT);
+        final CompletableFuture<String> first = admission.supply("first", this::await);
+        final CompletableFuture<String> second = admission.supply("second", () -> "second");
+
+        assertEquals(1, admission.getActiveCount());
+        assertEquals(1, admission.getQueueDepth());
+        latch.countDown();
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+        assertEquals(2, admission.getSubmittedCount());
+    }
+
+    @Test
+    public void testReject() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 0, OverflowPolicy.REJECT);
+        admission.supply("first", this::await);
+        try {
+            admission.supply("second", () -> "second");
+        } catch (final CommandRejectedException e) {
+            assertEquals(1, admission.getRejectedCount());
+            return;
+        }
+        throw new AssertionError("The command should have been rejected");
+    }
+
+    @Test(expected = CompletionException.class)
+    public void testFailingTask() {
+        final AdmissionExecutor admission = new AdmissionExecutor("test", executor, 1, 0, OverflowPolicy.REJECT);
+        admission.supply("failing", () -> {
+            throw new IllegalStateException();
+        }).join();
+    }
+
+    private String await() {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "first";
+    }
+}
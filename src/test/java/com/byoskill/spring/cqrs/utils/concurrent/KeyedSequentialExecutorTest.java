@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedSequentialExecutorTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final KeyedSequentialExecutor partitions = new KeyedSequentialExecutor();
+
+    private final TimeoutScheduler timeoutScheduler = new TimeoutScheduler();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        timeoutScheduler.shutdown();
+    }
+
+    @Test
+    public void testDifferentKeysInParallel() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final CompletableFuture<Boolean> first = partitions.submit("A",
+                () -> CompletableFuture.supplyAsync(() -> await(bothStarted), executor));
+        final CompletableFuture<Boolean> second = partitions.submit("B",
+                () -> CompletableFuture.supplyAsync(() -> await(bothStarted), executor));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSameKeyInOrder() {
+        final AtomicInteger running = new AtomicInteger();
+        final List<Integer> executed = new ArrayList<>();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            futures.add(partitions.submit("A", () -> CompletableFuture.supplyAsync(() -> {
+                assertEquals(1, running.incrementAndGet());
+                executed.add(index);
+                running.decrementAndGet();
+                if (index % 10 == 0) {
+                    throw new IllegalStateException("failure " + index);
+                }
+                return index;
+            }, executor)));
+        }
+
+        futures.get(99).join();
+        assertEquals(100, executed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, executed.get(i).intValue());
+        }
+        assertTrue(futures.get(10).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testIdleMailboxReclaimed() {
+        partitions.submit("A", () -> CompletableFuture.supplyAsync(() -> "A", executor)).join();
+        partitions.submit("B", () -> {
+            throw new IllegalStateException();
+        }).handle((value, failure) -> failure).join();
+
+        assertEquals(0, partitions.getActiveKeyCount());
+    }
+
+    @Test
+    public void testTimeOutDoesNotStartNextTask() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean secondStarted = new AtomicBoolean();
+        final CompletableFuture<Boolean> first = timeoutScheduler.within(
+                partitions.submit("A", () -> CompletableFuture.supplyAsync(() -> awaitRelease(release), executor)), 50,
+                TimeoutException::new);
+        final CompletableFuture<Boolean> second = partitions.submit("A", () -> {
+            secondStarted.set(true);
+            return CompletableFuture.completedFuture(true);
+        });
+
+        assertTrue(first.handle((value, failure) -> failure).join() instanceof TimeoutException);
+        assertFalse(secondStarted.get());
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, partitions.getActiveKeyCount());
+    }
+
+    @Test
+    public void testCancelDoesNotStartNextTask() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean secondStarted = new AtomicBoolean();
+        final CompletableFuture<Boolean> first = partitions.submit("A",
+                () -> CompletableFuture.supplyAsync(() -> awaitRelease(release), executor));
+        final CompletableFuture<Boolean> second = partitions.submit("A", () -> {
+            secondStarted.set(true);
+            return CompletableFuture.completedFuture(true);
+        });
+
+        first.cancel(true);
+        assertFalse(secondStarted.get());
+
+        release.countDown();
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    private boolean awaitRelease(final CountDownLatch release) {
+        try {
+            return release.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean await(final CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
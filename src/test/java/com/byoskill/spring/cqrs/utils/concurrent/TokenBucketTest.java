@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.utils.concurrent;
+
+import com.byoskill.spring.cqrs.api.RateLimit;
+import com.byoskill.spring.cqrs.gate.conf.RateLimiterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurst() {
+        final TokenBucket bucket = new TokenBucket("burst", new RateLimit(1, 5, 0));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+        final long wait = bucket.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(6, bucket.getGrantedCount());
+    }
+
+    @Test
+    public void testTryAcquire() {
+        final TokenBucket bucket = new TokenBucket("try", new RateLimit(1));
+        assertTrue(bucket.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertFalse(bucket.tryAcquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, bucket.getGrantedCount());
+        assertEquals(1, bucket.getRejectedCount());
+    }
+
+    @Test
+    public void testWarmUp() {
+        final TokenBucket cold = new TokenBucket("cold", new RateLimit(10, 1, 60_000));
+        final TokenBucket warm = new TokenBucket("warm", new RateLimit(10));
+        cold.reserve();
+        warm.reserve();
+        assertTrue(cold.reserve() > TimeUnit.MILLISECONDS.toNanos(250));
+        assertTrue(warm.reserve() <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testRegistryAsync() throws Exception {
+        final RateLimiterRegistry registry = new RateLimiterRegistry();
+        try {
+            registry.register("async", new RateLimit(20));
+            assertTrue(registry.tryAcquirePermitAsync("async", 0, TimeUnit.MILLISECONDS).toCompletableFuture()
+                    .get(1, TimeUnit.SECONDS));
+            final CompletableFuture<Void> permit = registry.acquirePermitAsync("async").toCompletableFuture();
+            assertFalse(permit.isDone());
+            permit.get(1, TimeUnit.SECONDS);
+            assertFalse(registry.tryAcquirePermitAsync("async", 0, TimeUnit.MILLISECONDS).toCompletableFuture()
+                    .get(1, TimeUnit.SECONDS));
+            assertTrue(registry.tryAcquirePermit("unknown", 0, TimeUnit.MILLISECONDS));
+            assertEquals(2, registry.getRateLimiters().get("async").getGrantedCount());
+            assertEquals(1, registry.getRateLimiters().get("async").getRejectedCount());
+        } finally {
+            registry.shutdown();
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package com.byoskill.spring.cqrs.utils.validation;
 
+import com.byoskill.spring.cqrs.annotations.CommandValidation;
+import com.byoskill.spring.cqrs.api.MessageInterpolation;
+import org.hibernate.validator.constraintvalidation.HibernateConstraintValidatorContext;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.validation.Constraint;
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
+import javax.validation.Payload;
 import javax.validation.Validation;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.List;
 
 
 public class ObjectValidationTest {
@@ -23,6 +40,141 @@ public class ObjectValidationTest {
         }
     }
 
+    public interface Creation {
+    }
+
+    @CommandValidation(failFast = true, groups = Creation.class)
+    public static class CreateAccount {
+        @NotNull(groups = Creation.class)
+        public String name;
+
+        @Min(value = 18, groups = Creation.class)
+        public int age;
+
+        @NotNull
+        public String id;
+    }
+
+    @CommandValidation(failFast = true)
+    public static class TagAccount {
+        public List<@NotNull String> tags = Arrays.asList("a", null);
+    }
+
+    public static class Unconstrained {
+        public String str;
+    }
+
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Constraint(validatedBy = EvenValidator.class)
+    public @interface Even {
+        String message() default "{odd} is odd, use {next} or ${previous}";
+
+        Class<?>[] groups() default {};
+
+        Class<? extends Payload>[] payload() default {};
+    }
+
+    public static class EvenValidator implements ConstraintValidator<Even, Integer> {
+        @Override
+        public boolean isValid(final Integer value, final ConstraintValidatorContext context) {
+            if (value % 2 == 0) {
+                return true;
+            }
+            context.unwrap(HibernateConstraintValidatorContext.class).addMessageParameter("odd", value)
+                    .addMessageParameter("next", value + 1).addExpressionVariable("previous", value - 1);
+            return false;
+        }
+    }
+
+    public static class Counted {
+        @Even
+        public Integer count = 3;
+    }
+
+    public static class Named {
+        @Size(min = 2, max = 4)
+        public String name = "a";
+    }
+
+    private final ObjectValidation objectValidation = new ObjectValidation(
+            Validation.buildDefaultValidatorFactory().getValidator());
+
+    @Test
+    public final void testFailFastWithGroups() {
+        final CreateAccount command = new CreateAccount();
+        try {
+            objectValidation.validate(command);
+            Assert.fail("The command should be invalid");
+        } catch (final ConstraintViolationException e) {
+            // Stops at the first invalid property, ignores the default group
+            Assert.assertEquals(1, e.getConstraintViolations().size());
+            Assert.assertEquals("age", e.getConstraintViolations().iterator().next().getPropertyPath().toString());
+        }
+        command.age = 20;
+        command.name = "john";
+        Assert.assertTrue(objectValidation.isValid(command));
+    }
+
+    @Test
+    public final void testFailFastContainerElements() {
+        try {
+            objectValidation.validate(new TagAccount());
+            Assert.fail("The command should be invalid");
+        } catch (final ConstraintViolationException e) {
+            Assert.assertEquals(1, e.getConstraintViolations().size());
+            Assert.assertEquals("tags[1].<list element>",
+                    e.getConstraintViolations().iterator().next().getPropertyPath().toString());
+        }
+    }
+
+    @Test
+    public final void testLazyMessages() {
+        final ObjectValidation lazyValidation = new ObjectValidation(Validation.buildDefaultValidatorFactory(),
+                MessageInterpolation.LAZY);
+        try {
+            lazyValidation.validate(new ObjectWithValidation());
+            Assert.fail("The object should be invalid");
+        } catch (final ConstraintViolationException e) {
+            final ConstraintViolation<?> violation = e.getConstraintViolations().iterator().next();
+            Assert.assertEquals("{javax.validation.constraints.NotEmpty.message}", violation.getMessageTemplate());
+            Assert.assertEquals("must not be empty", violation.getMessage());
+            Assert.assertTrue(e.getMessage().endsWith("str: must not be empty"));
+        }
+    }
+
+    @Test
+    public final void testLazyMessageParameters() {
+        final ObjectValidation lazyValidation = new ObjectValidation(Validation.buildDefaultValidatorFactory(),
+                MessageInterpolation.LAZY);
+        try {
+            lazyValidation.validate(new Counted());
+            Assert.fail("The object should be invalid");
+        } catch (final ConstraintViolationException e) {
+            Assert.assertEquals("3 is odd, use 4 or 2", e.getConstraintViolations().iterator().next().getMessage());
+        }
+    }
+
+    @Test
+    public final void testParameterMessages() {
+        final ObjectValidation parameterValidation = new ObjectValidation(
+                Validation.buildDefaultValidatorFactory(), MessageInterpolation.PARAMETERS);
+        try {
+            parameterValidation.validate(new Named());
+            Assert.fail("The object should be invalid");
+        } catch (final ConstraintViolationException e) {
+            Assert.assertEquals("size must be between 2 and 4",
+                    e.getConstraintViolations().iterator().next().getMessage());
+        }
+    }
+
+    @Test
+    public final void testUnconstrained() {
+        Assert.assertFalse(objectValidation.isConstrained(Unconstrained.class));
+        Assert.assertTrue(objectValidation.isConstrained(ObjectWithValidation.class));
+        Assert.assertTrue(objectValidation.isValid(new Unconstrained()));
+    }
+
     @Test
     public final void testIsValid() {
         Assert.assertFalse(new ObjectValidation(Validation.buildDefaultValidatorFactory().getValidator()).isValid(new ObjectWithValidation()));
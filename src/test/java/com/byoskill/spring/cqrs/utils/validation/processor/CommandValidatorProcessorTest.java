@@ -0,0 +1,153 @@
+package com.byoskill.spring.cqrs.utils.validation.processor;
+
+import com.byoskill.spring.cqrs.annotations.GenerateValidator;
+import com.byoskill.spring.cqrs.utils.validation.CommandValidator;
+import com.byoskill.spring.cqrs.utils.validation.ObjectValidation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.constraints.Email;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class CommandValidatorProcessorTest {
+
+    static class AccountCommand {
+        @NotNull
+        String id;
+    }
+
+    @GenerateValidator
+    static class CreateAccount extends AccountCommand {
+        @NotNull
+        @Size(min = 2, max = 10)
+        @Pattern(regexp = "[a-z]+", flags = Pattern.Flag.CASE_INSENSITIVE)
+        String name;
+
+        @Min(18)
+        @Max(130)
+        int age;
+
+        @Max(5)
+        Long rank;
+
+        @Size(max = 2)
+        List<String> roles = new ArrayList<>();
+
+        CreateAccount(final String id, final String name, final int age) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    interface Named {
+        @NotNull
+        String getName();
+    }
+
+    interface Labelled extends Named {
+    }
+
+    @GenerateValidator
+    static class RenameAccount implements Labelled {
+        String name;
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @GenerateValidator
+    static class TagAccount {
+        @Size(max = 5)
+        List<@NotNull String> tags = Arrays.asList("a", null);
+    }
+
+    @GenerateValidator
+    static class Unsupported {
+        @Email
+        String mail;
+    }
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final ObjectValidation objectValidation = new ObjectValidation(validator);
+
+    @Test
+    public final void testContainerElementConstraint() {
+        try {
+            Class.forName(getClass().getName() + "_TagAccount" + CommandValidator.SUFFIX);
+            Assert.fail("No validator should be generated when the container elements are constrained");
+        } catch (final ClassNotFoundException e) {
+            Assert.assertEquals(1, validator.validate(new TagAccount()).size());
+            Assert.assertFalse(objectValidation.isValid(new TagAccount()));
+        }
+    }
+
+    @Test
+    public final void testGeneratedValidator() {
+        final CommandValidator<CreateAccount> generated = new CommandValidatorProcessorTest_CreateAccount_Validator();
+
+        Assert.assertTrue(generated.isValid(new CreateAccount("1", "John", 20)));
+        Assert.assertFalse(generated.isValid(new CreateAccount(null, "John", 20)));
+        Assert.assertFalse(generated.isValid(new CreateAccount("1", null, 20)));
+        Assert.assertFalse(generated.isValid(new CreateAccount("1", "J", 20)));
+        Assert.assertFalse(generated.isValid(new CreateAccount("1", "John2", 20)));
+        Assert.assertFalse(generated.isValid(new CreateAccount("1", "John", 17)));
+        Assert.assertFalse(generated.isValid(new CreateAccount("1", "John", 131)));
+        final CreateAccount command = new CreateAccount("1", "John", 20);
+        command.rank = 6L;
+        Assert.assertFalse(generated.isValid(command));
+        command.rank = null;
+        command.roles = Collections.nCopies(3, "admin");
+        Assert.assertFalse(generated.isValid(command));
+    }
+
+    @Test
+    public final void testSameViolations() {
+        final CreateAccount command = new CreateAccount(null, "J2", 12);
+        try {
+            objectValidation.validate(command);
+            Assert.fail("The command should be invalid");
+        } catch (final ConstraintViolationException e) {
+            Assert.assertEquals(describe(validator.validate(command)), describe(e.getConstraintViolations()));
+        }
+        Assert.assertTrue(objectValidation.isValid(new CreateAccount("1", "John", 20)));
+    }
+
+    @Test
+    public final void testInterfaceConstraint() {
+        try {
+            Class.forName(getClass().getName() + "_RenameAccount" + CommandValidator.SUFFIX);
+            Assert.fail("No validator should be generated when an interface declares constraints");
+        } catch (final ClassNotFoundException e) {
+            Assert.assertFalse(objectValidation.isValid(new RenameAccount()));
+        }
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public final void testUnsupportedConstraint() throws ClassNotFoundException {
+        Class.forName(getClass().getName() + "_Unsupported" + CommandValidator.SUFFIX);
+    }
+
+    private Set<String> describe(final Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream().map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
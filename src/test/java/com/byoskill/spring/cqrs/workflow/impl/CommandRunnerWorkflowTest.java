@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Sylvain Leroy - BYOSkill Company All Rights Reserved
+ * You may use, distribute and modify this code under the
+ * terms of the MIT license, which unfortunately won't be
+ * written for another century.
+ *
+ * You should have received a copy of the MIT license with
+ * this file. If not, please write to: sleroy at byoskill.com, or visit : www.byoskill.com
+ *
+ */
+package com.byoskill.spring.cqrs.workflow.impl;
+
+import com.byoskill.spring.cqrs.api.CommandServiceSpec;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunner;
+import com.byoskill.spring.cqrs.executors.api.AsyncCommandRunnerChain;
+import com.byoskill.spring.cqrs.executors.api.CommandExecutionContext;
+import com.byoskill.spring.cqrs.executors.api.CommandRunner;
+import com.byoskill.spring.cqrs.executors.api.CommandTypeDescriptor;
+import com.byoskill.spring.cqrs.executors.impl.DefaultCommandRunner;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandRunnerWorkflowTest {
+
+    private final CompletableFuture<Void> permit = new CompletableFuture<>();
+
+    private final AsyncCommandRunner asyncRunner = new AsyncCommandRunner() {
+        @Override
+        public CompletionStage<Object> executeAsync(final CommandExecutionContext context,
+                                                    final AsyncCommandRunnerChain chain) {
+            return permit.thenCompose(ignored -> chain.executeAsync(context));
+        }
+    };
+
+    private final CommandRunner syncRunner = (context, chain) -> "[" + chain.execute(context) + "]";
+
+    private final CommandRunnerWorkflow workflow = new CommandRunnerWorkflow().addSteps(asyncRunner, syncRunner);
+
+    private final CommandTypeDescriptor descriptor = new CommandTypeDescriptor(String.class, null);
+
+    @Test
+    public void testCompile() {
+        permit.complete(null);
+        assertEquals("[COMMAND]", workflow.compile(descriptor, new DefaultCommandRunner()).execute(context()));
+    }
+
+    @Test
+    public void testCompileAsync() {
+        final CompletableFuture<Object> result = workflow.compileAsync(descriptor, new DefaultCommandRunner())
+                .executeAsync(context()).toCompletableFuture();
+
+        assertFalse(result.isDone());
+        permit.complete(null);
+        assertEquals("[COMMAND]", result.join());
+    }
+
+    @Test
+    public void testCompileAsync_failure() {
+        final CommandRunner failingRunner = (context, chain) -> {
+            throw new IllegalStateException();
+        };
+        final CompletableFuture<Object> result = workflow.addStep(failingRunner)
+                .compileAsync(descriptor, new DefaultCommandRunner()).executeAsync(context()).toCompletableFuture();
+
+        permit.complete(null);
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    private CommandExecutionContext context() {
+        final CommandExecutionContext context = mock(CommandExecutionContext.class);
+        when(context.getRawCommand()).thenReturn("COMMAND");
+        when(context.handler()).thenReturn((CommandServiceSpec) command -> command);
+        return context;
+    }
+}